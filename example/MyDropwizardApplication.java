@@ -1,13 +1,26 @@
 package com.example;
 
+import com.example.dao.UserUniquenessFilter;
 import com.example.entity.Transaction;
 import com.example.guice.DaoModule;
 import com.example.guice.InjectionFactory;
 import com.example.guice.ServiceModule;
 import com.example.resources.CampaignResource;
+import com.example.resources.DashboardResource;
 import com.example.resources.InstitutionResource;
 import com.example.resources.TransactionResource;
+import com.example.resources.UploadResource;
 import com.example.resources.UserResource;
+import com.example.service.CampaignFilterIndex;
+import com.example.service.CampaignSearchIndex;
+import com.example.service.DashboardServiceImpl;
+import com.example.service.DocstoreFileCache;
+import com.example.service.DonationEventApplier;
+import com.example.service.DonationRollupCompactor;
+import com.example.service.FundingAccumulator;
+import com.example.service.LiveCampaignFeed;
+import com.example.service.PendingTransactionReconciler;
+import com.example.service.UploadJobServiceImpl;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -76,16 +89,32 @@ public class MyDropwizardApplication extends Application<MyDropwizardConfigurati
         environment.getObjectMapper().registerModule(new ParameterNamesModule(JsonCreator.Mode.PROPERTIES));
 
         // Initialize Guice modules
-        InjectionFactory.init(new DaoModule(shardingBundle), new ServiceModule(olympusIMBundle));
+        InjectionFactory.init(new DaoModule(shardingBundle), new ServiceModule(olympusIMBundle,
+                configuration, environment.metrics(), environment.getObjectMapper()));
 
         // Configure CORS to allow all incoming traffic
         configureCors(environment);
 
+        // Manage background workers
+        environment.lifecycle().manage(InjectionFactory.getInstance(FundingAccumulator.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(UserUniquenessFilter.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(LiveCampaignFeed.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(CampaignSearchIndex.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(CampaignFilterIndex.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(DashboardServiceImpl.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(DonationRollupCompactor.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(DonationEventApplier.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(PendingTransactionReconciler.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(UploadJobServiceImpl.class));
+        environment.lifecycle().manage(InjectionFactory.getInstance(DocstoreFileCache.class));
+
         // Register Resources
         environment.jersey().register(InjectionFactory.getInstance(UserResource.class));
         environment.jersey().register(InjectionFactory.getInstance(InstitutionResource.class));
         environment.jersey().register(InjectionFactory.getInstance(TransactionResource.class));
         environment.jersey().register(InjectionFactory.getInstance(CampaignResource.class));
+        environment.jersey().register(InjectionFactory.getInstance(DashboardResource.class));
+        environment.jersey().register(InjectionFactory.getInstance(UploadResource.class));
         environment.jersey().register(MultiPartFeature.class);
     }
 
@@ -1,5 +1,15 @@
 package com.example;
 
+import com.example.config.CampaignCacheConfig;
+import com.example.config.DashboardConfig;
+import com.example.config.DonationEventConfig;
+import com.example.config.FileCacheConfig;
+import com.example.config.FundingWriteBehindConfig;
+import com.example.config.ReconcilerConfig;
+import com.example.config.RollupConfig;
+import com.example.config.ScatterGatherConfig;
+import com.example.config.UploadConfig;
+import com.example.config.UserFilterConfig;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.phonepe.olympus.im.bundle.config.OlympusIMBundleConfig;
 import com.phonepe.platform.http.v2.common.HttpConfiguration;
@@ -38,4 +48,44 @@ public class MyDropwizardConfiguration extends Configuration {
     @JsonProperty("docstore")
     private HttpConfiguration docstoreHttpConfig;
 
+    @javax.validation.Valid
+    @NotNull
+    private FundingWriteBehindConfig fundingWriteBehind = new FundingWriteBehindConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private CampaignCacheConfig campaignCache = new CampaignCacheConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private UserFilterConfig userFilter = new UserFilterConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private DashboardConfig dashboard = new DashboardConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private ScatterGatherConfig scatterGather = new ScatterGatherConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private RollupConfig rollups = new RollupConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private DonationEventConfig donationEvents = new DonationEventConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private ReconcilerConfig reconciler = new ReconcilerConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private UploadConfig uploads = new UploadConfig();
+
+    @javax.validation.Valid
+    @NotNull
+    private FileCacheConfig fileCache = new FileCacheConfig();
+
 }
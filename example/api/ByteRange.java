@@ -0,0 +1,82 @@
+package com.example.api;
+
+import lombok.Value;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.Optional;
+
+/**
+ * A single byte range requested through the HTTP Range header, resolved against the size of the content.
+ * Only one range is served; requests for several are answered with the whole content, as RFC 7233 allows.
+ */
+@Value
+public class ByteRange {
+
+    private static final String UNIT_PREFIX = "bytes=";
+
+    long start;
+    long end;
+
+    /**
+     * The range requested by the header, or empty when the whole content should be served. Ranges that
+     * start past the end of the content are rejected with 416.
+     */
+    public static Optional<ByteRange> parse(String header, long size) {
+        if (header == null || !header.startsWith(UNIT_PREFIX) || header.contains(",")) {
+            return Optional.empty();
+        }
+        String spec = header.substring(UNIT_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.empty();
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    throw unsatisfiable(size);
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                if (last.isEmpty()) {
+                    end = size - 1;
+                } else {
+                    long requestedEnd = Long.parseLong(last);
+                    if (requestedEnd < start) {
+                        // Malformed, so the header is ignored
+                        return Optional.empty();
+                    }
+                    end = Math.min(requestedEnd, size - 1);
+                }
+            }
+            if (start >= size) {
+                throw unsatisfiable(size);
+            }
+            return Optional.of(new ByteRange(start, end));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    public String toContentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    private static WebApplicationException unsatisfiable(long size) {
+        return new WebApplicationException(Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header("Content-Range", "bytes */" + size)
+                .build());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.ws.rs.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (seek) paginated list.
+ * The page token is opaque to clients and encodes the cursor of the last row returned, usually its id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Page<T> {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+    private static final String TOKEN_PREFIX = "v1:";
+
+    @JsonProperty
+    private List<T> items;
+
+    @JsonProperty
+    private String nextPageToken;
+
+    /**
+     * Build a page, handing out a next page token only when the page is full
+     */
+    public static <T> Page<T> of(List<T> items, int limit, Function<T, Long> idExtractor) {
+        return ofCursor(items, limit, item -> String.valueOf(idExtractor.apply(item)));
+    }
+
+    /**
+     * Build a page of rows loaded for a page of ids, continuing after the last id when the id page is full.
+     * Ids whose rows no longer load are skipped without ending the list early.
+     */
+    public static <T> Page<T> ofIds(List<T> items, List<Long> ids, int limit) {
+        String nextPageToken = null;
+        if (!ids.isEmpty() && ids.size() >= limit) {
+            nextPageToken = encodeToken(String.valueOf(ids.get(ids.size() - 1)));
+        }
+        return Page.<T>builder()
+                .items(items)
+                .nextPageToken(nextPageToken)
+                .build();
+    }
+
+    /**
+     * Build a page of a list ordered by something other than id, with the cursor naming a position in that order
+     */
+    public static <T> Page<T> ofCursor(List<T> items, int limit, Function<T, String> cursorExtractor) {
+        String nextPageToken = null;
+        if (!items.isEmpty() && items.size() >= limit) {
+            nextPageToken = encodeToken(cursorExtractor.apply(items.get(items.size() - 1)));
+        }
+        return Page.<T>builder()
+                .items(items)
+                .nextPageToken(nextPageToken)
+                .build();
+    }
+
+    /**
+     * Page size to use for the requested limit
+     */
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Id to seek after for the given page token, null for the first page
+     */
+    public static Long afterId(String pageToken) {
+        String cursor = cursor(pageToken);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid page token: " + pageToken, e);
+        }
+    }
+
+    /**
+     * Cursor to continue after for the given page token, null for the first page
+     */
+    public static String cursor(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(TOKEN_PREFIX)) {
+                throw new IllegalArgumentException("Unknown page token version");
+            }
+            return decoded.substring(TOKEN_PREFIX.length());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid page token: " + pageToken, e);
+        }
+    }
+
+    private static String encodeToken(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((TOKEN_PREFIX + cursor).getBytes(StandardCharsets.UTF_8));
+    }
+}
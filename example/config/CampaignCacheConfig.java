@@ -0,0 +1,18 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Bounds of the in-memory read-through cache in front of campaign lookups by id
+ */
+@Data
+public class CampaignCacheConfig {
+
+    @Min(0)
+    private long maxSize = 10_000;
+
+    @Min(1)
+    private long ttlSeconds = 30;
+}
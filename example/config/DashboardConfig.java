@@ -0,0 +1,19 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Fan-out of the dashboard endpoints. Each section is loaded on a dedicated pool and is left out of
+ * the response when it takes longer than sectionTimeoutMs.
+ */
+@Data
+public class DashboardConfig {
+
+    @Min(1)
+    private int threads = 8;
+
+    @Min(1)
+    private long sectionTimeoutMs = 2_000;
+}
@@ -0,0 +1,22 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * How often and in what batches donation events are applied to the campaign stats and donation rollups.
+ * Stats and charts trail donations by up to about intervalMs. Backfilling rebuilds the campaign stats
+ * and per-donor success counts from the transactions table on start and is meant for the first deployment.
+ */
+@Data
+public class DonationEventConfig {
+
+    @Min(10)
+    private long intervalMs = 1_000;
+
+    @Min(1)
+    private int batchSize = 1_000;
+
+    private boolean backfillOnStart = false;
+}
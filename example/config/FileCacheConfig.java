@@ -0,0 +1,20 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Local disk cache of files downloaded from Docstore. Least recently used files are evicted once the
+ * cached content exceeds maxSizeMb.
+ */
+@Data
+public class FileCacheConfig {
+
+    @NotNull
+    private String directory = System.getProperty("java.io.tmpdir") + "/docstore-cache";
+
+    @Min(1)
+    private long maxSizeMb = 2_048;
+}
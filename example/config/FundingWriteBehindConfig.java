@@ -0,0 +1,25 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Write-behind mode for campaign funding totals. When enabled, donations add to in-memory
+ * accumulators that are flushed to the campaigns table every flushIntervalMs.
+ */
+@Data
+public class FundingWriteBehindConfig {
+
+    private boolean enabled = false;
+
+    @Min(10)
+    private long flushIntervalMs = 500;
+
+    /**
+     * Rebuild funding totals from the transactions table on start, recovering deltas lost in a crash.
+     * Only safe when no other instance holds unflushed deltas at that moment, so it is off by default and
+     * meant to be enabled for a restart of the whole fleet, never for a rolling deploy.
+     */
+    private boolean recomputeOnStart = false;
+}
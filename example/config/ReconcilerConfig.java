@@ -0,0 +1,31 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Background reconciliation of pending transactions against the payment gateway. Transactions pending
+ * for longer than pendingAfterMinutes are checked every intervalSeconds, batchSize at a time with up to
+ * parallelism batches in flight. Off by default, since only the stub gateway client is bound so far.
+ */
+@Data
+public class ReconcilerConfig {
+
+    private boolean enabled = false;
+
+    @Min(1)
+    private long pendingAfterMinutes = 15;
+
+    @Min(1)
+    private long intervalSeconds = 60;
+
+    // Bounded by the largest page a keyset scan returns
+    @Min(1)
+    @Max(100)
+    private int batchSize = 100;
+
+    @Min(1)
+    private int parallelism = 4;
+}
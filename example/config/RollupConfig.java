@@ -0,0 +1,22 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Retention of the donation rollups. Hour and day buckets are written alongside minute buckets, so
+ * compaction only has to drop fine buckets once they are older than their retention. Backfill rebuilds
+ * the rollups from the transactions table on start and is meant for the first deployment.
+ */
+@Data
+public class RollupConfig {
+
+    @Min(1)
+    private int minuteRetentionHours = 48;
+
+    @Min(1)
+    private int hourRetentionDays = 90;
+
+    private boolean backfillOnStart = false;
+}
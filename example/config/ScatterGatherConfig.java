@@ -0,0 +1,18 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Pool and per-shard deadline of queries that fan out to every shard
+ */
+@Data
+public class ScatterGatherConfig {
+
+    @Min(1)
+    private int threads = 16;
+
+    @Min(1)
+    private long shardTimeoutMs = 1_000;
+}
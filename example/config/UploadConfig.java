@@ -0,0 +1,28 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Pool running asynchronous report uploads. At most queueCapacity uploads wait for one of the threads,
+ * and further uploads are rejected. Finished jobs can be polled for jobRetentionMinutes.
+ *
+ * With chunkedUploads, files over one chunk are stored in Docstore as part objects plus a manifest, which
+ * bounds upload memory but is only understood by this service, so other Docstore readers see the manifest.
+ * Without it every file is one Docstore object, buffered whole in memory while it is uploaded.
+ */
+@Data
+public class UploadConfig {
+
+    @Min(1)
+    private int threads = 4;
+
+    @Min(1)
+    private int queueCapacity = 100;
+
+    @Min(1)
+    private long jobRetentionMinutes = 60;
+
+    private boolean chunkedUploads = false;
+}
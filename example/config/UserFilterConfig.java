@@ -0,0 +1,25 @@
+package com.example.config;
+
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
+/**
+ * Sizing of the Bloom filter that short-circuits email and PAN uniqueness checks.
+ * Off by default: the filter is per instance and only sees users created through it after the startup scan,
+ * so it is only safe to enable where a single instance registers users.
+ */
+@Data
+public class UserFilterConfig {
+
+    private boolean enabled = false;
+
+    @Min(1)
+    private long expectedUsers = 1_000_000;
+
+    @DecimalMin("0.0001")
+    @DecimalMax("0.5")
+    private double falsePositiveRate = 0.01;
+}
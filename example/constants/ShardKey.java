@@ -1,5 +0,0 @@
-package com.example.constants;
-
-public interface ShardKey {
-    public static final String SHARD_KEY = "test";
-}
@@ -0,0 +1,86 @@
+package com.example.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.CampaignCacheConfig;
+import com.example.entity.Campaign;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of campaigns by id, bounded by size and TTL.
+ * Only existing campaigns are cached. Writers invalidate entries once their change is committed,
+ * and the TTL bounds how long a racing read can keep a stale entry.
+ */
+@Singleton
+public class CampaignCache {
+
+    private final Cache<Long, Campaign> cache;
+
+    @Inject
+    public CampaignCache(MyDropwizardConfiguration configuration, MetricRegistry metricRegistry) {
+        CampaignCacheConfig config = configuration.getCampaignCache();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfterWrite(config.getTtlSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        metricRegistry.register(MetricRegistry.name(CampaignCache.class, "hits"),
+                (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name(CampaignCache.class, "misses"),
+                (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.register(MetricRegistry.name(CampaignCache.class, "evictions"),
+                (Gauge<Long>) () -> cache.stats().evictionCount());
+        metricRegistry.register(MetricRegistry.name(CampaignCache.class, "size"),
+                (Gauge<Long>) cache::size);
+    }
+
+    public Optional<Campaign> get(Long id, Function<Long, Optional<Campaign>> loader) {
+        Campaign cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Campaign> campaign = loader.apply(id);
+        campaign.ifPresent(loaded -> cache.put(id, loaded));
+        return campaign;
+    }
+
+    /**
+     * Cached campaigns for the ids, loading all misses with one call to the loader
+     */
+    public Map<Long, Campaign> getAll(Collection<Long> ids, Function<List<Long>, Map<Long, Campaign>> loader) {
+        Map<Long, Campaign> campaigns = new HashMap<>(cache.getAllPresent(ids));
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!campaigns.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            Map<Long, Campaign> loaded = loader.apply(missingIds);
+            cache.putAll(loaded);
+            campaigns.putAll(loaded);
+        }
+        return campaigns;
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
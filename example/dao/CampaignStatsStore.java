@@ -0,0 +1,169 @@
+package com.example.dao;
+
+import com.example.entity.CampaignStats;
+import com.example.entity.DonationEvent;
+import com.example.sharding.ShardKeyResolver;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Maintains the campaign_stats projection. Stats rows live on their campaign's shard and are fed from the
+ * donation events of their campaign in batches, so recording a donation does not lock them.
+ * Distinct donors are counted through campaign_donors, which holds each donor's successful donations.
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class CampaignStatsStore {
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final String FAILED = "FAILED";
+    private static final String APPLY_SQL = "INSERT INTO campaign_stats"
+            + " (campaign_id, total_raised, donor_count, donation_count, success_count, failed_count, last_donation_at)"
+            + " VALUES (:campaignId, :raised, :donors, :donations, :successes, :failures, :lastDonationAt)"
+            + " ON DUPLICATE KEY UPDATE total_raised = total_raised + VALUES(total_raised),"
+            + " donor_count = donor_count + VALUES(donor_count), donation_count = donation_count + VALUES(donation_count),"
+            + " success_count = success_count + VALUES(success_count), failed_count = failed_count + VALUES(failed_count),"
+            + " last_donation_at = COALESCE(GREATEST(last_donation_at, VALUES(last_donation_at)), last_donation_at,"
+            + " VALUES(last_donation_at))";
+    private static final String ADD_SUCCESSES_SQL = "INSERT INTO campaign_donors (campaign_id, donor_id, successes)"
+            + " VALUES (:campaignId, :donorId, :successes)"
+            + " ON DUPLICATE KEY UPDATE successes = successes + VALUES(successes)";
+    private static final String SUCCESSES_SQL = "SELECT successes FROM campaign_donors"
+            + " WHERE campaign_id = :campaignId AND donor_id = :donorId FOR UPDATE";
+    // Transactions with unapplied events are counted when their events are applied
+    private static final String NOT_PENDING = " AND t.transaction_id NOT IN (SELECT transaction_id FROM donation_events)";
+    private static final String BACKFILL_DONORS_SQL = "INSERT INTO campaign_donors (campaign_id, donor_id, successes)"
+            + " SELECT t.campaign_id, t.donor_id, COUNT(*) FROM transactions t WHERE t.status = 'SUCCESS'" + NOT_PENDING
+            + " GROUP BY t.campaign_id, t.donor_id"
+            + " ON DUPLICATE KEY UPDATE successes = VALUES(successes)";
+    private static final String BACKFILL_STATS_SQL = "INSERT INTO campaign_stats"
+            + " (campaign_id, total_raised, donor_count, donation_count, success_count, failed_count, last_donation_at)"
+            + " SELECT t.campaign_id, COALESCE(SUM(CASE WHEN t.status = 'SUCCESS' THEN t.amount END), 0),"
+            + " COUNT(DISTINCT CASE WHEN t.status = 'SUCCESS' THEN t.donor_id END), COUNT(*),"
+            + " SUM(CASE WHEN t.status = 'SUCCESS' THEN 1 ELSE 0 END), SUM(CASE WHEN t.status = 'FAILED' THEN 1 ELSE 0 END),"
+            + " MAX(t.created) FROM transactions t WHERE 1 = 1" + NOT_PENDING + " GROUP BY t.campaign_id"
+            + " ON DUPLICATE KEY UPDATE total_raised = VALUES(total_raised), donor_count = VALUES(donor_count),"
+            + " donation_count = VALUES(donation_count), success_count = VALUES(success_count),"
+            + " failed_count = VALUES(failed_count), last_donation_at = VALUES(last_donation_at)";
+    private final RelationalDao<CampaignStats> campaignStatsRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+
+    public Optional<CampaignStats> get(Long campaignId) {
+        try {
+            return campaignStatsRelationalDao.get(shardKeyResolver.forId(campaignId), campaignId);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch stats for campaign: " + campaignId, e);
+        }
+    }
+
+    /**
+     * Apply donation events of one campaign, oldest first, as one stats change, in the session that consumes them
+     */
+    public void apply(Session session, Long campaignId, List<DonationEvent> events) {
+        Delta delta = new Delta();
+        // Donors in id order, so concurrent batches lock their rows in the same order
+        Map<Long, Long> successChanges = new TreeMap<>();
+        for (DonationEvent event : events) {
+            if (event.isCreation()) {
+                delta.donations++;
+                if (delta.lastDonationAt == null || event.getDonatedAt().after(delta.lastDonationAt)) {
+                    delta.lastDonationAt = event.getDonatedAt();
+                }
+            } else {
+                delta.add(event.getBeforeStatus(), event.getBeforeAmount(), -1);
+                if (isSuccess(event.getBeforeStatus())) {
+                    successChanges.merge(event.getBeforeDonorId(), -1L, Long::sum);
+                }
+            }
+            delta.add(event.getAfterStatus(), event.getAfterAmount(), 1);
+            if (isSuccess(event.getAfterStatus())) {
+                successChanges.merge(event.getAfterDonorId(), 1L, Long::sum);
+            }
+        }
+        successChanges.forEach((donorId, change) -> {
+            if (change == 0) {
+                return;
+            }
+            long after = addSuccesses(session, campaignId, donorId, change);
+            long before = after - change;
+            if (before <= 0 && after > 0) {
+                delta.donors++;
+            } else if (before > 0 && after <= 0) {
+                delta.donors--;
+            }
+        });
+        session.createNativeQuery(APPLY_SQL)
+                .setParameter("campaignId", campaignId)
+                .setParameter("raised", delta.raised)
+                .setParameter("donors", delta.donors)
+                .setParameter("donations", delta.donations)
+                .setParameter("successes", delta.successes)
+                .setParameter("failures", delta.failures)
+                .setParameter("lastDonationAt", delta.lastDonationAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Rebuild the per-donor success counts and the stats of every campaign on every shard from the transactions
+     * table, leaving out transactions whose events are still pending. Meant for the first deployment of the
+     * donation events, so that campaigns count the donations made before it.
+     */
+    public void backfill() {
+        try {
+            for (String shardKey : shardKeyResolver.allShards()) {
+                campaignStatsRelationalDao.runInSession(shardKey, session -> {
+                    session.createNativeQuery(BACKFILL_DONORS_SQL).executeUpdate();
+                    return session.createNativeQuery(BACKFILL_STATS_SQL).executeUpdate();
+                });
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to backfill campaign stats", e);
+        }
+    }
+
+    // Returns the donor's successes after the change, read under the row lock the upsert took
+    private static long addSuccesses(Session session, Long campaignId, Long donorId, long change) {
+        session.createNativeQuery(ADD_SUCCESSES_SQL)
+                .setParameter("campaignId", campaignId)
+                .setParameter("donorId", donorId)
+                .setParameter("successes", change)
+                .executeUpdate();
+        Number successes = (Number) session.createNativeQuery(SUCCESSES_SQL)
+                .setParameter("campaignId", campaignId)
+                .setParameter("donorId", donorId)
+                .getSingleResult();
+        return successes.longValue();
+    }
+
+    private static boolean isSuccess(String status) {
+        return SUCCESS.equalsIgnoreCase(status);
+    }
+
+    private static class Delta {
+        private BigDecimal raised = BigDecimal.ZERO;
+        private long donors;
+        private long donations;
+        private long successes;
+        private long failures;
+        private Date lastDonationAt;
+
+        private void add(String status, BigDecimal amount, int sign) {
+            if (isSuccess(status)) {
+                raised = raised.add(amount.multiply(BigDecimal.valueOf(sign)));
+                successes += sign;
+            } else if (FAILED.equalsIgnoreCase(status)) {
+                failures += sign;
+            }
+        }
+    }
+}
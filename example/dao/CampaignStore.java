@@ -1,69 +1,163 @@
 package com.example.dao;
 
-import com.example.constants.ShardKey;
 import com.example.entity.Campaign;
+import com.example.models.CampaignSummary;
+import com.example.models.FundingDelta;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
+import com.example.utils.DaoUtils;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class CampaignStore {
 
+    private static final String ID_PARAM = "id";
+    private static final String UPDATED_PARAM = "updated";
     private static final int MAX_FETCH_COUNT = 100;
+    // Card columns, leaving out the description TEXT column and review fields
+    public static final List<String> SUMMARY_PROPERTIES = List.of(ID_PARAM, "beneficiaryId", "institutionId", "title",
+            "category", "fundRaised", "donorCount", "isLive", "isApproved", "isFulfilled", "isFeatured", "urgencyLevel",
+            "priorityScore", "created");
+    private static final String INCREMENT_FUNDING_SQL = "UPDATE campaigns"
+            + " SET fund_raised = COALESCE(fund_raised, 0) + :amount, donor_count = COALESCE(donor_count, 0) + :donations"
+            + " WHERE id = :id";
+    private static final String RECOMPUTE_FUNDING_SQL = "UPDATE campaigns c"
+            + " SET fund_raised = (SELECT COALESCE(SUM(t.amount), 0) FROM transactions t WHERE t.campaign_id = c.id),"
+            + " donor_count = (SELECT COUNT(*) FROM transactions t WHERE t.campaign_id = c.id)";
     private final RelationalDao<Campaign> campaignRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
+    private final CampaignCache campaignCache;
 
     public List<Campaign> getAll(String shardKey) {
+        return getAll(shardKey, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Campaign> getAll(String shardKey, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class);
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch campaigns", e);
         }
     }
 
     public Optional<Campaign> getById(String shardKey, Long id) {
+        return campaignCache.get(id, this::loadById);
+    }
+
+    private Optional<Campaign> loadById(Long id) {
         try {
-            return campaignRelationalDao.get(ShardKey.SHARD_KEY, id);
+            return campaignRelationalDao.get(shardKeyResolver.forId(id), id);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch campaign: " + id, e);
         }
     }
 
+    /**
+     * Get campaigns by id, in the order of the ids and skipping unknown ones.
+     * Cache misses are fetched with one IN query per shard.
+     */
+    public List<Campaign> getByIds(String shardKey, List<Long> ids) {
+        Map<Long, Campaign> campaigns = campaignCache.getAll(ids, this::loadByIds);
+        return ids.stream()
+                .distinct()
+                .map(campaigns::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Campaign> loadByIds(List<Long> ids) {
+        try {
+            Map<Long, Campaign> campaigns = new HashMap<>();
+            for (Map.Entry<String, List<Long>> shard : shardKeyResolver.groupById(ids).entrySet()) {
+                DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
+                        .add(Restrictions.in(ID_PARAM, shard.getValue()));
+                for (Campaign campaign : campaignRelationalDao.select(shard.getKey(), criteria, 0, shard.getValue().size())) {
+                    campaigns.put(campaign.getId(), campaign);
+                }
+            }
+            return campaigns;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch campaigns: " + ids, e);
+        }
+    }
+
+    /**
+     * Drop the cached copy of a campaign whose row was changed outside this store's own updates
+     */
+    public void invalidate(Long id) {
+        campaignCache.invalidate(id);
+    }
+
     public void create(String shardKey, Campaign campaign) {
         try {
-            campaignRelationalDao.save(ShardKey.SHARD_KEY, campaign);
+            // Campaigns of a beneficiary live together; the generated id then routes the campaign and its children
+            campaignRelationalDao.save(shardKeyResolver.forValue(campaign.getBeneficiaryId()), campaign);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create campaign", e);
         }
     }
 
+    /**
+     * Update a campaign's editable fields. Funding totals are left alone; only {@link #incrementFunding}
+     * writes them, so an edit cannot overwrite donations recorded meanwhile.
+     * The beneficiary is not editable, since it placed the campaign on its shard; a request without one
+     * keeps the current beneficiary.
+     */
     public void update(String shardKey, Long id, Campaign updatedCampaign) {
         try {
-            campaignRelationalDao.update(ShardKey.SHARD_KEY,
+            Long beneficiaryId = updatedCampaign.getBeneficiaryId();
+            if (beneficiaryId != null && loadById(id)
+                    .filter(campaign -> !beneficiaryId.equals(campaign.getBeneficiaryId()))
+                    .isPresent()) {
+                throw new IllegalArgumentException("Campaign " + id + " cannot be moved to another beneficiary");
+            }
+            campaignRelationalDao.update(shardKeyResolver.forId(id),
                     DetachedCriteria.forClass(Campaign.class)
                             .add(Restrictions.eq("id", id)),
                     campaign -> {
-                        campaign.setBeneficiaryId(updatedCampaign.getBeneficiaryId());
                         campaign.setInstitutionId(updatedCampaign.getInstitutionId());
                         campaign.setTitle(updatedCampaign.getTitle());
                         campaign.setDescription(updatedCampaign.getDescription());
-                        campaign.setFundRaised(updatedCampaign.getFundRaised());
+                        campaign.setCategory(updatedCampaign.getCategory());
                         campaign.setReportFileId(updatedCampaign.getReportFileId());
                         campaign.setIsLive(updatedCampaign.getIsLive());
                         campaign.setIsApproved(updatedCampaign.getIsApproved());
                         campaign.setIsFulfilled(updatedCampaign.getIsFulfilled());
                         campaign.setVerifiedBy(updatedCampaign.getVerifiedBy());
-                        campaign.setDonorCount(updatedCampaign.getDonorCount());
                         campaign.setPriorityScore(updatedCampaign.getPriorityScore());
+                        campaign.setIsFeatured(updatedCampaign.getIsFeatured());
+                        campaign.setUrgencyLevel(updatedCampaign.getUrgencyLevel());
                         return campaign;
                     });
+            campaignCache.invalidate(id);
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to update campaign: " + id, e);
         }
@@ -71,69 +165,219 @@ public class CampaignStore {
 
     public void updateReportFileId(String shardKey, Long id, String reportFileId) {
         try {
-            campaignRelationalDao.update(ShardKey.SHARD_KEY,
+            campaignRelationalDao.update(shardKeyResolver.forId(id),
                     DetachedCriteria.forClass(Campaign.class)
                             .add(Restrictions.eq("id", id)),
                     campaign -> {
                         campaign.setReportFileId(reportFileId);
                         return campaign;
                     });
+            campaignCache.invalidate(id);
         } catch (Exception e) {
             throw new RuntimeException("Failed to update report file ID for campaign: " + id, e);
         }
     }
 
+    /**
+     * Add donations to the campaign totals as a single atomic UPDATE.
+     * Runs in the caller's session, which must be open on the campaign's shard.
+     * The caller invalidates the cached campaign once the session commits.
+     */
+    public void incrementFunding(Session session, Long id, BigDecimal amount, int donations) {
+        int updated = session.createNativeQuery(INCREMENT_FUNDING_SQL)
+                .setParameter("amount", amount)
+                .setParameter("donations", donations)
+                .setParameter("id", id)
+                .executeUpdate();
+        if (updated == 0) {
+            throw new IllegalArgumentException("Campaign with ID " + id + " does not exist");
+        }
+    }
+
     public boolean exists(String shardKey, Long id) {
         return getById(shardKey, id).isPresent();
     }
 
+    /**
+     * Apply funding deltas with one session per shard. Shards fail independently, so the deltas
+     * that were committed are returned and the rest can be retried.
+     */
+    public List<FundingDelta> incrementFunding(Collection<FundingDelta> deltas) {
+        Map<Long, FundingDelta> deltasByCampaign = deltas.stream()
+                .collect(Collectors.toMap(FundingDelta::getCampaignId, Function.identity()));
+        List<FundingDelta> applied = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> shard : shardKeyResolver.groupById(deltasByCampaign.keySet()).entrySet()) {
+            try {
+                campaignRelationalDao.runInSession(shard.getKey(), session -> {
+                    for (Long id : shard.getValue()) {
+                        FundingDelta delta = deltasByCampaign.get(id);
+                        incrementFunding(session, id, delta.getAmount(), Math.toIntExact(delta.getDonations()));
+                    }
+                    return null;
+                });
+                shard.getValue().forEach(id -> {
+                    applied.add(deltasByCampaign.get(id));
+                    campaignCache.invalidate(id);
+                });
+            } catch (Exception e) {
+                log.error("Failed to apply funding deltas for campaigns: {}", shard.getValue(), e);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Rebuild every campaign's funding totals from its transactions, shard by shard
+     */
+    public void recomputeFundingFromTransactions() {
+        try {
+            for (String shardKey : shardKeyResolver.allShards()) {
+                int updated = campaignRelationalDao.runInSession(shardKey,
+                        session -> session.createNativeQuery(RECOMPUTE_FUNDING_SQL).executeUpdate());
+                log.info("Recomputed funding totals for {} campaigns on shard {}", updated, shardKey);
+            }
+            campaignCache.invalidateAll();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to recompute campaign funding", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Set<Long> getExistingIds(String shardKey, Collection<Long> ids) {
+        try {
+            Set<Long> existingIds = new HashSet<>();
+            for (Map.Entry<String, List<Long>> shard : shardKeyResolver.groupById(ids).entrySet()) {
+                existingIds.addAll(campaignRelationalDao.runInSession(shard.getKey(), session ->
+                        (List<Long>) DetachedCriteria.forClass(Campaign.class)
+                                .add(Restrictions.in(ID_PARAM, shard.getValue()))
+                                .setProjection(Projections.id())
+                                .getExecutableCriteria(session)
+                                .list()));
+            }
+            return existingIds;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to check existence of campaigns: " + ids, e);
+        }
+    }
+
     public List<Campaign> getByBeneficiaryId(String shardKey, Long beneficiaryId) {
+        return getByBeneficiaryId(shardKey, beneficiaryId, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Campaign> getByBeneficiaryId(String shardKey, Long beneficiaryId, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
-                    .add(Restrictions.eq("beneficiaryId", beneficiaryId));
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            DetachedCriteria criteria = DaoUtils.seek(DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("beneficiaryId", beneficiaryId)), ID_PARAM, afterId);
+            return campaignRelationalDao.select(shardKeyResolver.forValue(beneficiaryId), criteria, 0, pageSize(limit));
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch campaigns for beneficiary: " + beneficiaryId, e);
         }
     }
 
     public List<Campaign> getByInstitutionId(String shardKey, Long institutionId) {
+        return getByInstitutionId(shardKey, institutionId, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Campaign> getByInstitutionId(String shardKey, Long institutionId, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
-                    .add(Restrictions.eq("institutionId", institutionId));
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("institutionId", institutionId)), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch campaigns for institution: " + institutionId, e);
         }
     }
 
-    public List<Campaign> getLiveCampaigns(String shardKey) {
+    public List<CampaignSummary> getSummariesByInstitutionId(String shardKey, Long institutionId) {
+        return getSummariesByInstitutionId(shardKey, institutionId, null, MAX_FETCH_COUNT);
+    }
+
+    public List<CampaignSummary> getSummariesByInstitutionId(String shardKey, Long institutionId, Long afterId, int limit) {
+        try {
+            return selectSummaryPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("institutionId", institutionId)), afterId, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch campaign summaries for institution: " + institutionId, e);
+        }
+    }
+
+    public List<Campaign> getLiveCampaigns(String shardKey, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
-                    .add(Restrictions.eq("isLive", true));
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("isLive", true)), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch live campaigns", e);
         }
     }
 
+    public List<CampaignSummary> getLiveCampaignSummaries(String shardKey) {
+        return getLiveCampaignSummaries(shardKey, null, MAX_FETCH_COUNT);
+    }
+
+    public List<CampaignSummary> getLiveCampaignSummaries(String shardKey, Long afterId, int limit) {
+        try {
+            return selectSummaryPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("isLive", true)), afterId, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch live campaign summaries", e);
+        }
+    }
+
+    /**
+     * A page of campaigns from every shard, read as projection type beans holding only the given properties,
+     * which include the id. Limited to campaigns updated at or after updatedSince when it is set.
+     */
+    public <R> List<R> scanPage(List<String> properties, Class<R> projectionType, Function<R, Long> idExtractor,
+                                Date updatedSince, Long afterId, int limit) {
+        try {
+            return scatterGather.selectProjectedPage(campaignRelationalDao, () -> {
+                        DetachedCriteria criteria = DaoUtils.project(DetachedCriteria.forClass(Campaign.class), properties);
+                        return updatedSince == null ? criteria : criteria.add(Restrictions.ge(UPDATED_PARAM, updatedSince));
+                    }, projectionType, ID_PARAM, idExtractor, afterId, pageSize(limit))
+                    .requireComplete();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to scan campaigns", e);
+        }
+    }
+
     public List<Campaign> getApprovedCampaigns(String shardKey) {
+        return getApprovedCampaigns(shardKey, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Campaign> getApprovedCampaigns(String shardKey, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
-                    .add(Restrictions.eq("isApproved", true));
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("isApproved", true)), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch approved campaigns", e);
         }
     }
 
     public List<Campaign> getFulfilledCampaigns(String shardKey) {
+        return getFulfilledCampaigns(shardKey, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Campaign> getFulfilledCampaigns(String shardKey, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Campaign.class)
-                    .add(Restrictions.eq("isFulfilled", true));
-            return campaignRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Campaign.class)
+                    .add(Restrictions.eq("isFulfilled", true)), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch fulfilled campaigns", e);
         }
     }
+
+    private List<Campaign> selectPageFromAllShards(Supplier<DetachedCriteria> criteria, Long afterId, int limit) {
+        return scatterGather.selectPage(campaignRelationalDao, criteria, ID_PARAM, Campaign::getId, afterId, pageSize(limit))
+                .requireComplete();
+    }
+
+    private List<CampaignSummary> selectSummaryPageFromAllShards(Supplier<DetachedCriteria> criteria, Long afterId, int limit) {
+        return scatterGather.selectProjectedPage(campaignRelationalDao,
+                        () -> DaoUtils.project(criteria.get(), SUMMARY_PROPERTIES), CampaignSummary.class,
+                        ID_PARAM, CampaignSummary::getId, afterId, pageSize(limit))
+                .requireComplete();
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_FETCH_COUNT));
+    }
 }
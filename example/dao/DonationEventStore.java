@@ -0,0 +1,151 @@
+package com.example.dao;
+
+import com.example.entity.DonationEvent;
+import com.example.entity.Transaction;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Outbox of donation changes feeding the campaign stats and donation rollups.
+ *
+ * Recording a donation only appends an event next to it, instead of updating the campaign's stats row and the
+ * rollup rows it shares with every campaign of its institution. Events are applied in batches by
+ * {@link #applyPending}; the instances applying a shard at the same time each lock and apply their own events.
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class DonationEventStore {
+
+    private static final String INSERT_SQL = "INSERT INTO donation_events"
+            + " (transaction_id, campaign_id, institution_id, donated_at, before_donor_id, before_amount, before_status,"
+            + " after_donor_id, after_amount, after_status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String PENDING_IDS_SQL = "SELECT id FROM donation_events ORDER BY id LIMIT :limit";
+    // Point locks on the events read, so donations appending new events are never blocked
+    private static final String LOCK_SQL = "SELECT * FROM donation_events WHERE id IN (:ids) ORDER BY id"
+            + " FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_SQL = "DELETE FROM donation_events WHERE id IN (:ids)";
+    private final RelationalDao<DonationEvent> donationEventRelationalDao;
+    private final CampaignStatsStore campaignStatsStore;
+    private final DonationRollupStore donationRollupStore;
+
+    /**
+     * Append events for newly inserted donations, in the session that inserted them. Rows inserted without a
+     * generated creation time are bucketed at the current time.
+     */
+    public void recordCreated(Session session, Long institutionId, List<Transaction> created) {
+        Date now = new Date();
+        insert(session, created.stream()
+                .map(transaction -> DonationEvent.builder()
+                        .transactionId(transaction.getTransactionId())
+                        .campaignId(transaction.getCampaignId())
+                        .institutionId(institutionId)
+                        .donatedAt(transaction.getCreated() != null ? transaction.getCreated() : now)
+                        .afterDonorId(transaction.getDonorId())
+                        .afterAmount(transaction.getAmount())
+                        .afterStatus(transaction.getStatus())
+                        .build())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Append an event moving a donation from its previous to its current state, in the session that updated it
+     */
+    public void recordUpdated(Session session, Long institutionId, Transaction before, Transaction after) {
+        insert(session, List.of(DonationEvent.builder()
+                .transactionId(before.getTransactionId())
+                .campaignId(before.getCampaignId())
+                .institutionId(institutionId)
+                .donatedAt(before.getCreated() != null ? before.getCreated() : new Date())
+                .beforeDonorId(before.getDonorId())
+                .beforeAmount(before.getAmount())
+                .beforeStatus(before.getStatus())
+                .afterDonorId(after.getDonorId())
+                .afterAmount(after.getAmount())
+                .afterStatus(after.getStatus())
+                .build()));
+    }
+
+    /**
+     * Apply up to limit of the oldest events of a shard to the stats and rollups and delete them, in one session.
+     * Events locked by another instance are left to it. Returns the number of events applied, so callers can
+     * keep going while full batches come back.
+     */
+    public int applyPending(String shardKey, int limit) {
+        try {
+            return donationEventRelationalDao.runInSession(shardKey, session -> {
+                List<?> ids = session.createNativeQuery(PENDING_IDS_SQL)
+                        .setParameter("limit", limit)
+                        .getResultList();
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                @SuppressWarnings("unchecked")
+                List<DonationEvent> events = session.createNativeQuery(LOCK_SQL)
+                        .addEntity(DonationEvent.class)
+                        .setParameterList("ids", ids)
+                        .getResultList();
+                if (events.isEmpty()) {
+                    return 0;
+                }
+                // Campaigns in id order, so concurrent batches lock stats rows in the same order
+                Map<Long, List<DonationEvent>> eventsByCampaign = events.stream()
+                        .collect(Collectors.groupingBy(DonationEvent::getCampaignId, TreeMap::new, Collectors.toList()));
+                eventsByCampaign.forEach((campaignId, campaignEvents) ->
+                        campaignStatsStore.apply(session, campaignId, campaignEvents));
+                donationRollupStore.apply(session, events);
+                session.createNativeQuery(DELETE_SQL)
+                        .setParameterList("ids", events.stream().map(DonationEvent::getId).collect(Collectors.toList()))
+                        .executeUpdate();
+                events.forEach(session::evict);
+                return events.size();
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to apply donation events on shard: " + shardKey, e);
+        }
+    }
+
+    private static void insert(Session session, List<DonationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (DonationEvent event : events) {
+                    statement.setLong(1, event.getTransactionId());
+                    statement.setLong(2, event.getCampaignId());
+                    setNullable(statement, 3, event.getInstitutionId());
+                    statement.setTimestamp(4, new Timestamp(event.getDonatedAt().getTime()));
+                    setNullable(statement, 5, event.getBeforeDonorId());
+                    statement.setBigDecimal(6, event.getBeforeAmount());
+                    statement.setString(7, event.getBeforeStatus());
+                    statement.setLong(8, event.getAfterDonorId());
+                    statement.setBigDecimal(9, event.getAfterAmount());
+                    statement.setString(10, event.getAfterStatus());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private static void setNullable(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
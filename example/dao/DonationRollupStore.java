@@ -0,0 +1,246 @@
+package com.example.dao;
+
+import com.example.entity.DonationEvent;
+import com.example.entity.DonationRollup;
+import com.example.models.Granularity;
+import com.example.models.TimeseriesPoint;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains per-campaign and per-institution donation rollups in minute, hour and day buckets.
+ *
+ * Successful donations are added to all three bucket sizes from the donation events of their shard, in
+ * batches, so charts read a handful of pre-aggregated rows instead of grouping raw transactions. Minute and
+ * hour buckets are dropped once they age out, leaving the coarser buckets that already cover them.
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class DonationRollupStore {
+
+    public static final int MAX_POINTS = 2_000;
+    private static final String SUCCESS = "SUCCESS";
+    private static final int DELETE_BATCH_SIZE = 10_000;
+    private static final String UPSERT_SQL = "INSERT INTO donation_rollups"
+            + " (scope, scope_id, granularity, bucket_start, amount, donations)"
+            + " VALUES (:scope, :scopeId, :granularity, %s, :amount, :donations)"
+            + " ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount), donations = donations + VALUES(donations)";
+    private static final String DELETE_SQL = "DELETE FROM donation_rollups"
+            + " WHERE granularity = :granularity AND bucket_start < :before LIMIT " + DELETE_BATCH_SIZE;
+    // Transactions with unapplied events are counted when their events are applied
+    private static final String NOT_PENDING = " AND t.transaction_id NOT IN (SELECT transaction_id FROM donation_events)";
+    // Rebuilt buckets replace what was there, so a backfill can be re-run
+    private static final String BACKFILL_CAMPAIGNS_SQL = "INSERT INTO donation_rollups"
+            + " (scope, scope_id, granularity, bucket_start, amount, donations)"
+            + " SELECT 'CAMPAIGN', t.campaign_id, :granularity, %1$s, SUM(t.amount), COUNT(*) FROM transactions t"
+            + " WHERE t.status = 'SUCCESS' AND t.created >= :since" + NOT_PENDING + " GROUP BY t.campaign_id, %1$s"
+            + " ON DUPLICATE KEY UPDATE amount = VALUES(amount), donations = VALUES(donations)";
+    private static final String BACKFILL_INSTITUTIONS_SQL = "INSERT INTO donation_rollups"
+            + " (scope, scope_id, granularity, bucket_start, amount, donations)"
+            + " SELECT 'INSTITUTION', c.institution_id, :granularity, %1$s, SUM(t.amount), COUNT(*)"
+            + " FROM transactions t JOIN campaigns c ON c.id = t.campaign_id"
+            + " WHERE t.status = 'SUCCESS' AND t.created >= :since" + NOT_PENDING + " GROUP BY c.institution_id, %1$s"
+            + " ON DUPLICATE KEY UPDATE amount = VALUES(amount), donations = VALUES(donations)";
+    private final RelationalDao<DonationRollup> donationRollupRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
+
+    /**
+     * Apply a batch of donation events to the campaign and institution buckets, in the session that consumes
+     * them. Events are summed per campaign and minute first, so a busy minute is one upsert per bucket size.
+     */
+    public void apply(Session session, List<DonationEvent> events) {
+        Map<Change, Change> changes = new TreeMap<>();
+        for (DonationEvent event : events) {
+            // Every time zone offset is a whole number of minutes, so this agrees with the database's truncation
+            Date minute = new Date(event.getDonatedAt().getTime() - Math.floorMod(event.getDonatedAt().getTime(), 60_000L));
+            Change change = changes.computeIfAbsent(new Change(minute, event.getCampaignId(), event.getInstitutionId()),
+                    key -> key);
+            if (!event.isCreation() && isSuccess(event.getBeforeStatus())) {
+                change.amount = change.amount.subtract(event.getBeforeAmount());
+                change.donations--;
+            }
+            if (isSuccess(event.getAfterStatus())) {
+                change.amount = change.amount.add(event.getAfterAmount());
+                change.donations++;
+            }
+        }
+        for (Change change : changes.keySet()) {
+            if (change.donations != 0 || change.amount.signum() != 0) {
+                add(session, change.campaignId, change.institutionId, change.minute, change.amount, change.donations);
+            }
+        }
+    }
+
+    /**
+     * Buckets of a campaign with donations, oldest first. Without a range, the granularity's default
+     * window up to now is returned.
+     */
+    public List<TimeseriesPoint> getCampaignTimeseries(Long campaignId, Granularity granularity, Date from, Date to) {
+        Supplier<DetachedCriteria> criteria = buckets(DonationRollup.CAMPAIGN, campaignId, granularity, from, to);
+        try {
+            return donationRollupRelationalDao.select(shardKeyResolver.forId(campaignId), criteria.get(), 0, MAX_POINTS)
+                    .stream()
+                    .map(rollup -> new TimeseriesPoint(rollup.getBucketStart(), rollup.getAmount(), rollup.getDonations()))
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch timeseries for campaign: " + campaignId, e);
+        }
+    }
+
+    /**
+     * Sum the partial rollups every shard holds for the institution's campaigns
+     */
+    public List<TimeseriesPoint> getInstitutionTimeseries(Long institutionId, Granularity granularity, Date from, Date to) {
+        Supplier<DetachedCriteria> criteria = buckets(DonationRollup.INSTITUTION, institutionId, granularity, from, to);
+        try {
+            List<DonationRollup> rollups = scatterGather.select(donationRollupRelationalDao, criteria,
+                    MAX_POINTS * shardKeyResolver.allShards().size()).requireComplete();
+            Map<Date, TimeseriesPoint> points = new TreeMap<>();
+            for (DonationRollup rollup : rollups) {
+                TimeseriesPoint point = points.computeIfAbsent(rollup.getBucketStart(),
+                        bucketStart -> new TimeseriesPoint(bucketStart, BigDecimal.ZERO, 0));
+                point.setAmount(point.getAmount().add(rollup.getAmount()));
+                point.setDonations(point.getDonations() + rollup.getDonations());
+            }
+            return new ArrayList<>(points.values());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch timeseries for institution: " + institutionId, e);
+        }
+    }
+
+    /**
+     * Drop buckets of a granularity that start before the cutoff, on every shard, in bounded deletes
+     */
+    public long deleteExpired(Granularity granularity, Date before) {
+        try {
+            long deleted = 0;
+            for (String shardKey : shardKeyResolver.allShards()) {
+                int batch;
+                do {
+                    batch = donationRollupRelationalDao.runInSession(shardKey, session ->
+                            session.createNativeQuery(DELETE_SQL)
+                                    .setParameter("granularity", granularity.name())
+                                    .setParameter("before", before)
+                                    .executeUpdate());
+                    deleted += batch;
+                } while (batch == DELETE_BATCH_SIZE);
+            }
+            return deleted;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete expired " + granularity + " rollups", e);
+        }
+    }
+
+    /**
+     * Rebuild the buckets of a granularity from the successful transactions created since the given time,
+     * on every shard. Donations recorded while a shard is being rebuilt can be overwritten, so this should
+     * run before the instance takes traffic.
+     */
+    public void backfill(Granularity granularity, Date since) {
+        try {
+            String bucketStart = granularity.bucketStart("t.created");
+            for (String shardKey : shardKeyResolver.allShards()) {
+                donationRollupRelationalDao.runInSession(shardKey, session -> {
+                    for (String sql : List.of(BACKFILL_CAMPAIGNS_SQL, BACKFILL_INSTITUTIONS_SQL)) {
+                        session.createNativeQuery(String.format(sql, bucketStart))
+                                .setParameter("granularity", granularity.name())
+                                .setParameter("since", since)
+                                .executeUpdate();
+                    }
+                    return null;
+                });
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to backfill " + granularity + " rollups", e);
+        }
+    }
+
+    // Buckets of every size are upserted in the same order, so concurrent sessions lock them consistently
+    private static void add(Session session, Long campaignId, Long institutionId, Date at, BigDecimal amount,
+                            long donations) {
+        for (Granularity granularity : Granularity.values()) {
+            upsert(session, DonationRollup.CAMPAIGN, campaignId, granularity, at, amount, donations);
+            if (institutionId != null) {
+                upsert(session, DonationRollup.INSTITUTION, institutionId, granularity, at, amount, donations);
+            }
+        }
+    }
+
+    private static void upsert(Session session, String scope, Long scopeId, Granularity granularity, Date at,
+                               BigDecimal amount, long donations) {
+        session.createNativeQuery(String.format(UPSERT_SQL, granularity.bucketStart(":at")))
+                .setParameter("scope", scope)
+                .setParameter("scopeId", scopeId)
+                .setParameter("granularity", granularity.name())
+                .setParameter("at", at)
+                .setParameter("amount", amount)
+                .setParameter("donations", donations)
+                .executeUpdate();
+    }
+
+    private static Supplier<DetachedCriteria> buckets(String scope, Long scopeId, Granularity granularity,
+                                                      Date from, Date to) {
+        Date end = to != null ? to : new Date();
+        Date start = from != null ? from : Date.from(end.toInstant().minus(granularity.getDefaultWindow()));
+        if (!start.before(end)) {
+            throw new IllegalArgumentException("Timeseries range must start before it ends");
+        }
+        if ((end.getTime() - start.getTime()) / granularity.getWidth().toMillis() > MAX_POINTS) {
+            throw new IllegalArgumentException("Timeseries range spans more than " + MAX_POINTS + " "
+                    + granularity.name().toLowerCase() + " buckets");
+        }
+        return () -> DetachedCriteria.forClass(DonationRollup.class)
+                .add(Restrictions.eq("scope", scope))
+                .add(Restrictions.eq("scopeId", scopeId))
+                .add(Restrictions.eq("granularity", granularity.name()))
+                .add(Restrictions.ge("bucketStart", start))
+                .add(Restrictions.lt("bucketStart", end))
+                .addOrder(Order.asc("bucketStart"));
+    }
+
+    private static boolean isSuccess(String status) {
+        return SUCCESS.equalsIgnoreCase(status);
+    }
+
+    // Net change to the buckets of one campaign and minute; ordered so concurrent batches lock rows in one order
+    private static class Change implements Comparable<Change> {
+        private static final Comparator<Change> ORDER = Comparator.comparing((Change change) -> change.minute)
+                .thenComparing(change -> change.campaignId);
+
+        private final Date minute;
+        private final Long campaignId;
+        private final Long institutionId;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long donations;
+
+        private Change(Date minute, Long campaignId, Long institutionId) {
+            this.minute = minute;
+            this.campaignId = campaignId;
+            this.institutionId = institutionId;
+        }
+
+        @Override
+        public int compareTo(Change other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.entity.FileDigest;
+import com.example.sharding.ShardKeyResolver;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Optional;
+
+/**
+ * Global index from content digest to the Docstore file already holding that content.
+ * Each mapping lives on the shard its digest hashes to, so a lookup is a single primary key read.
+ * Mappings never change once written, which lets resolved file ids be cached without invalidation.
+ */
+@Singleton
+public class FileDigestStore {
+
+    private static final long MAX_CACHED_DIGESTS = 100_000;
+
+    private final RelationalDao<FileDigest> fileDigestRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final Cache<String, String> cache;
+
+    @Inject
+    public FileDigestStore(RelationalDao<FileDigest> fileDigestRelationalDao,
+                           ShardKeyResolver shardKeyResolver,
+                           MetricRegistry metricRegistry) {
+        this.fileDigestRelationalDao = fileDigestRelationalDao;
+        this.shardKeyResolver = shardKeyResolver;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_DIGESTS)
+                .recordStats()
+                .build();
+        metricRegistry.register(MetricRegistry.name(FileDigestStore.class, "hits"),
+                (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name(FileDigestStore.class, "misses"),
+                (Gauge<Long>) () -> cache.stats().missCount());
+    }
+
+    public Optional<String> findFileId(String digest) {
+        String cached = cache.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try {
+            Optional<String> fileId = fileDigestRelationalDao.get(shardKeyResolver.forValue(digest), digest)
+                    .map(FileDigest::getFileId);
+            fileId.ifPresent(id -> cache.put(digest, id));
+            return fileId;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to look up file digest: " + digest, e);
+        }
+    }
+
+    public void create(String digest, String fileId) {
+        try {
+            fileDigestRelationalDao.save(shardKeyResolver.forValue(digest),
+                    FileDigest.builder()
+                            .digest(digest)
+                            .fileId(fileId)
+                            .build());
+            cache.put(digest, fileId);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to index file digest: " + digest, e);
+        }
+    }
+}
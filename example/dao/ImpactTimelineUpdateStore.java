@@ -1,6 +1,8 @@
 package com.example.dao;
 
 import com.example.entity.ImpactTimelineUpdate;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.criterion.DetachedCriteria;
@@ -16,11 +18,14 @@ import java.util.Optional;
 public class ImpactTimelineUpdateStore {
     private static final int MAX_FETCH_COUNT = 100;
     private final RelationalDao<ImpactTimelineUpdate> impactTimelineUpdateRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
 
     public List<ImpactTimelineUpdate> getAll(String shardKey) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(ImpactTimelineUpdate.class);
-            return impactTimelineUpdateRelationalDao.select(shardKey, criteria, 0, MAX_FETCH_COUNT);
+            return scatterGather.selectPage(impactTimelineUpdateRelationalDao,
+                    () -> DetachedCriteria.forClass(ImpactTimelineUpdate.class),
+                    "id", ImpactTimelineUpdate::getId, null, MAX_FETCH_COUNT).requireComplete();
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch impact timeline updates", e);
         }
@@ -28,7 +33,7 @@ public class ImpactTimelineUpdateStore {
 
     public Optional<ImpactTimelineUpdate> getById(String shardKey, Long id) {
         try {
-            return impactTimelineUpdateRelationalDao.get(shardKey, id);
+            return impactTimelineUpdateRelationalDao.get(shardKeyResolver.forId(id), id);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch impact timeline update: " + id, e);
         }
@@ -36,7 +41,8 @@ public class ImpactTimelineUpdateStore {
 
     public void create(String shardKey, ImpactTimelineUpdate update) {
         try {
-            impactTimelineUpdateRelationalDao.save(shardKey, update);
+            // Updates live next to their campaign
+            impactTimelineUpdateRelationalDao.save(shardKeyResolver.forId(update.getCampaignId()), update);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create impact timeline update", e);
         }
@@ -44,7 +50,7 @@ public class ImpactTimelineUpdateStore {
 
     public void update(String shardKey, Long id, ImpactTimelineUpdate updatedUpdate) {
         try {
-            impactTimelineUpdateRelationalDao.update(shardKey,
+            impactTimelineUpdateRelationalDao.update(shardKeyResolver.forId(id),
                     DetachedCriteria.forClass(ImpactTimelineUpdate.class)
                             .add(Restrictions.eq("id", id)),
                     update -> {
@@ -67,7 +73,7 @@ public class ImpactTimelineUpdateStore {
         try {
             DetachedCriteria criteria = DetachedCriteria.forClass(ImpactTimelineUpdate.class)
                     .add(Restrictions.eq("campaignId", campaignId));
-            return impactTimelineUpdateRelationalDao.select(shardKey, criteria, 0, MAX_FETCH_COUNT);
+            return impactTimelineUpdateRelationalDao.select(shardKeyResolver.forId(campaignId), criteria, 0, MAX_FETCH_COUNT);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch impact timeline updates for campaign: " + campaignId, e);
         }
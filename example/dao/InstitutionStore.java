@@ -1,7 +1,8 @@
 package com.example.dao;
 
-import com.example.constants.ShardKey;
 import com.example.entity.Institution;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.criterion.DetachedCriteria;
@@ -18,11 +19,14 @@ public class InstitutionStore {
 
     private static final int MAX_FETCH_COUNT = 100;
     private final RelationalDao<Institution> institutionRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
 
     public List<Institution> getAll(String shardKey) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Institution.class);
-            return institutionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return scatterGather.selectPage(institutionRelationalDao,
+                    () -> DetachedCriteria.forClass(Institution.class),
+                    "id", Institution::getId, null, MAX_FETCH_COUNT).requireComplete();
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch institutions", e);
         }
@@ -30,7 +34,7 @@ public class InstitutionStore {
 
     public Optional<Institution> getById(String shardKey, Long id) {
         try {
-            return institutionRelationalDao.get(ShardKey.SHARD_KEY, id);
+            return institutionRelationalDao.get(shardKeyResolver.forId(id), id);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch institution: " + id, e);
         }
@@ -38,7 +42,7 @@ public class InstitutionStore {
 
     public void create(String shardKey, Institution institution) {
         try {
-            institutionRelationalDao.save(ShardKey.SHARD_KEY, institution);
+            institutionRelationalDao.save(shardKeyResolver.forValue(institution.getEmail()), institution);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create institution", e);
         }
@@ -46,7 +50,7 @@ public class InstitutionStore {
 
     public void update(String shardKey, Long id, Institution updatedInstitution) {
         try {
-            institutionRelationalDao.update(ShardKey.SHARD_KEY,
+            institutionRelationalDao.update(shardKeyResolver.forId(id),
                     DetachedCriteria.forClass(Institution.class)
                             .add(Restrictions.eq("id", id)),
                     institution -> {
@@ -0,0 +1,130 @@
+package com.example.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.entity.TransactionLookup;
+import com.example.sharding.ShardKeyResolver;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+import org.hibernate.query.NativeQuery;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Global secondary index from payment gateway transaction id to transaction id.
+ * Each mapping lives on the shard its gateway id hashes to, so a lookup is a single primary key read.
+ * Completed mappings never change, which lets resolved ids be cached without invalidation.
+ *
+ * The transaction and its mapping live on different shards, so a gateway id is reserved before its transaction
+ * is inserted and the reservation is completed with the transaction id after the insert commits. The insert
+ * that reserves fails on a duplicate key, which keeps concurrent callbacks for one gateway id from both
+ * recording a donation.
+ */
+@Singleton
+public class TransactionLookupStore {
+
+    private static final long MAX_CACHED_LOOKUPS = 100_000;
+    private static final String RESERVE_SQL = "INSERT IGNORE INTO transaction_lookup"
+            + " (gateway_transaction_id, campaign_id, reserved_at) VALUES (:id, :campaignId, :now)";
+    private static final String TAKE_OVER_SQL = "UPDATE transaction_lookup SET campaign_id = :campaignId, reserved_at = :now"
+            + " WHERE gateway_transaction_id = :id AND transaction_id IS NULL AND reserved_at < :staleBefore";
+    private static final String COMPLETE_SQL = "UPDATE transaction_lookup SET transaction_id = :transactionId"
+            + " WHERE gateway_transaction_id = :id";
+    private static final String RELEASE_SQL = "DELETE FROM transaction_lookup"
+            + " WHERE gateway_transaction_id = :id AND transaction_id IS NULL";
+
+    private final RelationalDao<TransactionLookup> transactionLookupRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final Cache<String, Long> cache;
+
+    @Inject
+    public TransactionLookupStore(RelationalDao<TransactionLookup> transactionLookupRelationalDao,
+                                  ShardKeyResolver shardKeyResolver,
+                                  MetricRegistry metricRegistry) {
+        this.transactionLookupRelationalDao = transactionLookupRelationalDao;
+        this.shardKeyResolver = shardKeyResolver;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_LOOKUPS)
+                .recordStats()
+                .build();
+        metricRegistry.register(MetricRegistry.name(TransactionLookupStore.class, "hits"),
+                (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name(TransactionLookupStore.class, "misses"),
+                (Gauge<Long>) () -> cache.stats().missCount());
+    }
+
+    public Optional<Long> findTransactionId(String gatewayTransactionId) {
+        Long cached = cache.getIfPresent(gatewayTransactionId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try {
+            Optional<Long> transactionId = transactionLookupRelationalDao
+                    .get(shardKeyResolver.forValue(gatewayTransactionId), gatewayTransactionId)
+                    .map(TransactionLookup::getTransactionId);
+            transactionId.ifPresent(id -> cache.put(gatewayTransactionId, id));
+            return transactionId;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to look up gateway transaction: " + gatewayTransactionId, e);
+        }
+    }
+
+    public Optional<TransactionLookup> get(String gatewayTransactionId) {
+        try {
+            return transactionLookupRelationalDao.get(shardKeyResolver.forValue(gatewayTransactionId), gatewayTransactionId);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to look up gateway transaction: " + gatewayTransactionId, e);
+        }
+    }
+
+    /**
+     * Reserve a gateway id for a transaction about to be recorded. Returns false when the id is already
+     * reserved or recorded.
+     */
+    public boolean reserve(String gatewayTransactionId, Long campaignId) {
+        return execute(gatewayTransactionId, RESERVE_SQL, query -> query
+                .setParameter("campaignId", campaignId)
+                .setParameter("now", new Date())) == 1;
+    }
+
+    /**
+     * Take over a reservation that was made before the given time and never completed. Only one of several
+     * concurrent callers succeeds, since the first one refreshes the reservation time.
+     */
+    public boolean takeOver(String gatewayTransactionId, Date staleBefore, Long campaignId) {
+        return execute(gatewayTransactionId, TAKE_OVER_SQL, query -> query
+                .setParameter("campaignId", campaignId)
+                .setParameter("now", new Date())
+                .setParameter("staleBefore", staleBefore)) == 1;
+    }
+
+    /**
+     * Record the transaction a reservation was made for, once it has committed
+     */
+    public void complete(String gatewayTransactionId, Long transactionId) {
+        execute(gatewayTransactionId, COMPLETE_SQL, query -> query.setParameter("transactionId", transactionId));
+        cache.put(gatewayTransactionId, transactionId);
+    }
+
+    /**
+     * Drop a reservation whose transaction was not recorded, so the gateway id can be retried
+     */
+    public void release(String gatewayTransactionId) {
+        execute(gatewayTransactionId, RELEASE_SQL, UnaryOperator.identity());
+    }
+
+    private int execute(String gatewayTransactionId, String sql, UnaryOperator<NativeQuery<?>> parameters) {
+        try {
+            return transactionLookupRelationalDao.runInSession(shardKeyResolver.forValue(gatewayTransactionId),
+                    session -> parameters.apply(session.createNativeQuery(sql).setParameter("id", gatewayTransactionId))
+                            .executeUpdate());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to index gateway transaction: " + gatewayTransactionId, e);
+        }
+    }
+}
@@ -1,61 +1,179 @@
 package com.example.dao;
 
-import com.example.constants.ShardKey;
+import com.example.entity.Campaign;
 import com.example.entity.Transaction;
+import com.example.entity.TransactionLookup;
+import com.example.models.DonorTotal;
+import com.example.models.TransactionBatchResult;
+import com.example.models.TransactionSummary;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
+import com.example.utils.DaoUtils;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.LockMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class TransactionStore {
 
+    private static final String ID_PARAM = "transactionId";
+    private static final String PENDING = "PENDING";
+    // A gateway id reservation still incomplete after this long was left by a request that died before recording
+    private static final Duration RESERVATION_TIMEOUT = Duration.ofMinutes(10);
+    // History columns, leaving out the donor message and failure reason TEXT columns
+    private static final List<String> SUMMARY_PROPERTIES = List.of(ID_PARAM, "donorId", "campaignId", "amount", "status",
+            "isAnonymous", "receiptNumber", "created");
     private static final int MAX_FETCH_COUNT = 100;
+    // MySQL Connector/J only streams rows one at a time with this fetch size
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int JDBC_BATCH_SIZE = 100;
+    private static final String INSERT_SQL = "INSERT INTO transactions"
+            + " (donor_id, campaign_id, amount, upi_id, status, failure_reason, is_anonymous, donor_message,"
+            + " receipt_number, receipt_url, gateway_transaction_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DONOR_TOTALS_SQL = "SELECT donor_id, SUM(amount) AS total, COUNT(*), MAX(is_anonymous)"
+            + " FROM transactions WHERE campaign_id = :campaignId AND status = 'SUCCESS'";
     private final RelationalDao<Transaction> transactionRelationalDao;
     private final UserStore userStore;
     private final CampaignStore campaignStore;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
+    private final TransactionLookupStore transactionLookupStore;
+    private final DonationEventStore donationEventStore;
 
     public List<Transaction> getAll(String shardKey) {
+        return getAll(shardKey, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Transaction> getAll(String shardKey, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class);
-            return transactionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Transaction.class), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch transactions", e);
         }
     }
 
     public Optional<Transaction> getById(String shardKey, String transactionId) {
+        Optional<Long> parsed = parseId(transactionId);
+        if (!parsed.isPresent()) {
+            return Optional.empty();
+        }
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
-                    .add(Restrictions.eq("transactionId", transactionId));
-            List<Transaction> transactions = transactionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, 1);
-            return transactions.isEmpty() ? Optional.empty() : Optional.of(transactions.get(0));
+            Long id = parsed.get();
+            return transactionRelationalDao.get(shardKeyResolver.forId(id), id);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch transaction: " + transactionId, e);
         }
     }
 
+    /**
+     * Resolve a payment gateway transaction id through the global lookup index, then read the transaction
+     * from the shard encoded in its id
+     */
+    public Optional<Transaction> getByGatewayTransactionId(String shardKey, String gatewayTransactionId) {
+        try {
+            Optional<Long> transactionId = transactionLookupStore.findTransactionId(gatewayTransactionId);
+            if (transactionId.isPresent()) {
+                return transactionRelationalDao.get(shardKeyResolver.forId(transactionId.get()), transactionId.get());
+            }
+            Optional<TransactionLookup> reservation = transactionLookupStore.get(gatewayTransactionId);
+            return reservation.isPresent() ? findUnindexed(reservation.get()) : Optional.empty();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch transaction for gateway transaction: " + gatewayTransactionId, e);
+        }
+    }
+
+    /**
+     * Create a transaction and add it to its campaign's totals. The insert and the atomic funding
+     * increment share one session on the campaign's shard, so concurrent donations cannot lose updates.
+     */
     public void create(String shardKey, Transaction transaction) {
         try {
-            // Validate donor exists (always use shard "1" for consistency)
-            boolean donorExists = userStore.getUserById(ShardKey.SHARD_KEY, transaction.getDonorId()).isPresent();
-            if (!donorExists) {
-                throw new IllegalArgumentException("Donor with ID " + transaction.getDonorId() + " does not exist");
+            validateDonor(shardKey, transaction);
+            Long institutionId = institutionIdOf(shardKey, transaction.getCampaignId());
+            reserveGatewayTransactionId(transaction);
+
+            // Transactions live next to their campaign; a missing campaign fails the increment and rolls back
+            try {
+                transactionRelationalDao.runInSession(shardKeyResolver.forId(transaction.getCampaignId()), session -> {
+                    session.save(transaction);
+                    campaignStore.incrementFunding(session, transaction.getCampaignId(), transaction.getAmount(), 1);
+                    donationEventStore.recordCreated(session, institutionId, Collections.singletonList(transaction));
+                    return null;
+                });
+            } catch (Exception e) {
+                release(transaction);
+                throw e;
             }
+            campaignStore.invalidate(transaction.getCampaignId());
+            index(transaction);
+        } catch (IllegalArgumentException e) {
+            // Re-throw validation errors
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create transaction", e);
+        }
+    }
+
+    /**
+     * Create a transaction without touching its campaign's totals, for callers that account for funding themselves
+     */
+    public void createWithoutFunding(String shardKey, Transaction transaction) {
+        try {
+            validateDonor(shardKey, transaction);
 
             // Validate campaign exists
-            boolean campaignExists = campaignStore.exists(ShardKey.SHARD_KEY, transaction.getCampaignId());
-            if (!campaignExists) {
-                throw new IllegalArgumentException("Campaign with ID " + transaction.getCampaignId() + " does not exist");
-            }
+            Campaign campaign = campaignStore.getById(shardKey, transaction.getCampaignId())
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            "Campaign with ID " + transaction.getCampaignId() + " does not exist"));
+
+            reserveGatewayTransactionId(transaction);
 
-            transactionRelationalDao.save(ShardKey.SHARD_KEY, transaction);
+            // Transactions live next to their campaign
+            try {
+                transactionRelationalDao.runInSession(shardKeyResolver.forId(transaction.getCampaignId()), session -> {
+                    session.save(transaction);
+                    donationEventStore.recordCreated(session, campaign.getInstitutionId(), Collections.singletonList(transaction));
+                    return null;
+                });
+            } catch (Exception e) {
+                release(transaction);
+                throw e;
+            }
+            index(transaction);
         } catch (IllegalArgumentException e) {
             // Re-throw validation errors
             throw e;
@@ -64,24 +182,261 @@ public class TransactionStore {
         }
     }
 
-    public void update(String shardKey, String transactionId, Transaction updatedTransaction) {
+    private void validateDonor(String shardKey, Transaction transaction) {
+        boolean donorExists = userStore.getUserById(shardKey, transaction.getDonorId()).isPresent();
+        if (!donorExists) {
+            throw new IllegalArgumentException("Donor with ID " + transaction.getDonorId() + " does not exist");
+        }
+    }
+
+    private Long institutionIdOf(String shardKey, Long campaignId) {
+        return campaignStore.getById(shardKey, campaignId).map(Campaign::getInstitutionId).orElse(null);
+    }
+
+    /**
+     * Reserve the transaction's gateway id before it is inserted, failing if the id is already reserved or
+     * recorded. A reservation left incomplete for longer than the timeout is completed if its transaction
+     * was recorded, and taken over otherwise.
+     */
+    private void reserveGatewayTransactionId(Transaction transaction) throws Exception {
+        String gatewayTransactionId = transaction.getGatewayTransactionId();
+        if (gatewayTransactionId == null || transactionLookupStore.reserve(gatewayTransactionId, transaction.getCampaignId())) {
+            return;
+        }
+        Optional<TransactionLookup> existing = transactionLookupStore.get(gatewayTransactionId);
+        if (!existing.isPresent()) {
+            // Released since the reservation was attempted
+            if (transactionLookupStore.reserve(gatewayTransactionId, transaction.getCampaignId())) {
+                return;
+            }
+        } else if (existing.get().getTransactionId() == null
+                && !findUnindexed(existing.get()).isPresent()
+                && transactionLookupStore.takeOver(gatewayTransactionId,
+                Date.from(Instant.now().minus(RESERVATION_TIMEOUT)), transaction.getCampaignId())) {
+            return;
+        }
+        throw new IllegalArgumentException("Gateway transaction " + gatewayTransactionId + " is already recorded");
+    }
+
+    /**
+     * The transaction an incomplete reservation was made for, if it was recorded, completing the reservation
+     */
+    private Optional<Transaction> findUnindexed(TransactionLookup reservation) throws Exception {
+        if (reservation.getCampaignId() == null) {
+            return Optional.empty();
+        }
+        DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
+                .add(Restrictions.eq("campaignId", reservation.getCampaignId()))
+                .add(Restrictions.eq("gatewayTransactionId", reservation.getGatewayTransactionId()));
+        Optional<Transaction> recorded = transactionRelationalDao
+                .select(shardKeyResolver.forId(reservation.getCampaignId()), criteria, 0, 1)
+                .stream()
+                .findFirst();
+        recorded.ifPresent(this::index);
+        return recorded;
+    }
+
+    /**
+     * Complete the reservation of a saved transaction's gateway id. The transaction has already committed, so
+     * a failure here is only logged: the reservation keeps blocking duplicates, and is completed from the
+     * campaign's shard the next time the gateway id is looked up or retried.
+     */
+    private void index(Transaction transaction) {
+        if (transaction.getGatewayTransactionId() == null) {
+            return;
+        }
+        try {
+            transactionLookupStore.complete(transaction.getGatewayTransactionId(), transaction.getTransactionId());
+        } catch (Exception e) {
+            log.warn("Failed to index gateway transaction: {}", transaction.getGatewayTransactionId(), e);
+        }
+    }
+
+    // Frees the gateway id of a transaction that was not recorded, so it can be retried
+    private void release(Transaction transaction) {
+        if (transaction.getGatewayTransactionId() == null) {
+            return;
+        }
+        try {
+            transactionLookupStore.release(transaction.getGatewayTransactionId());
+        } catch (Exception e) {
+            log.warn("Failed to release gateway transaction: {}", transaction.getGatewayTransactionId(), e);
+        }
+    }
+
+    /**
+     * Create a batch of transactions. Donors and campaigns are validated once per distinct ID, rows are
+     * inserted with JDBC statement batching and every campaign gets one aggregated funding update, in a
+     * single session per campaign shard. Shards commit independently, so the outcome is reported per row:
+     * rows of a shard that failed are released and can be resent, and rows whose gateway id is already
+     * recorded are reported as duplicates, which makes resending the whole batch safe.
+     */
+    public TransactionBatchResult createBatch(String shardKey, List<Transaction> transactions) {
         try {
-            transactionRelationalDao.update(ShardKey.SHARD_KEY,
-                    DetachedCriteria.forClass(Transaction.class)
-                            .add(Restrictions.eq("transactionId", transactionId)),
-                    transaction -> {
-                        transaction.setDonorId(updatedTransaction.getDonorId());
-                        transaction.setCampaignId(updatedTransaction.getCampaignId());
-                        transaction.setAmount(updatedTransaction.getAmount());
-                        transaction.setUpiId(updatedTransaction.getUpiId());
-                        transaction.setStatus(updatedTransaction.getStatus());
-                        transaction.setFailureReason(updatedTransaction.getFailureReason());
-                        transaction.setIsAnonymous(updatedTransaction.getIsAnonymous());
-                        transaction.setDonorMessage(updatedTransaction.getDonorMessage());
-                        transaction.setReceiptNumber(updatedTransaction.getReceiptNumber());
-                        transaction.setReceiptUrl(updatedTransaction.getReceiptUrl());
-                        return transaction;
+            Set<Long> donorIds = transactions.stream().map(Transaction::getDonorId).collect(Collectors.toSet());
+            Set<Long> missingDonorIds = new HashSet<>(donorIds);
+            missingDonorIds.removeAll(userStore.getExistingIds(donorIds));
+            if (!missingDonorIds.isEmpty()) {
+                throw new IllegalArgumentException("Donors with IDs " + missingDonorIds + " do not exist");
+            }
+
+            Set<Long> campaignIds = transactions.stream().map(Transaction::getCampaignId).collect(Collectors.toSet());
+            // Institutions are needed for the rollups, so campaigns are read rather than only checked for existence
+            Map<Long, Long> institutionIds = campaignStore.getByIds(shardKey, new ArrayList<>(campaignIds)).stream()
+                    .collect(Collectors.toMap(Campaign::getId, Campaign::getInstitutionId));
+            Set<Long> missingCampaignIds = new HashSet<>(campaignIds);
+            missingCampaignIds.removeAll(institutionIds.keySet());
+            if (!missingCampaignIds.isEmpty()) {
+                throw new IllegalArgumentException("Campaigns with IDs " + missingCampaignIds + " do not exist");
+            }
+
+            List<String> gatewayTransactionIds = transactions.stream()
+                    .map(Transaction::getGatewayTransactionId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            Set<String> distinctGatewayTransactionIds = new HashSet<>(gatewayTransactionIds);
+            if (distinctGatewayTransactionIds.size() < gatewayTransactionIds.size()) {
+                throw new IllegalArgumentException("Batch contains duplicate gateway transaction IDs");
+            }
+
+            TransactionBatchResult.Row[] rows = new TransactionBatchResult.Row[transactions.size()];
+            List<Integer> reserved = new ArrayList<>();
+            try {
+                for (int i = 0; i < transactions.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    try {
+                        reserveGatewayTransactionId(transaction);
+                        reserved.add(i);
+                    } catch (IllegalArgumentException e) {
+                        Long recordedId = transactionLookupStore.get(transaction.getGatewayTransactionId())
+                                .map(TransactionLookup::getTransactionId)
+                                .orElse(null);
+                        rows[i] = new TransactionBatchResult.Row(i, TransactionBatchResult.Outcome.DUPLICATE,
+                                recordedId, e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                reserved.forEach(i -> release(transactions.get(i)));
+                throw e;
+            }
+
+            Map<String, List<Integer>> rowsByShard = reserved.stream()
+                    .collect(Collectors.groupingBy(i -> shardKeyResolver.forId(transactions.get(i).getCampaignId()),
+                            LinkedHashMap::new, Collectors.toList()));
+            for (Map.Entry<String, List<Integer>> shard : rowsByShard.entrySet()) {
+                List<Transaction> shardTransactions = shard.getValue().stream()
+                        .map(transactions::get)
+                        .collect(Collectors.toList());
+                try {
+                    transactionRelationalDao.runInSession(shard.getKey(), session -> {
+                        session.doWork(connection -> insertBatch(connection, shardTransactions));
+                        shardTransactions.stream()
+                                .collect(Collectors.groupingBy(Transaction::getCampaignId, LinkedHashMap::new, Collectors.toList()))
+                                .forEach((campaignId, donations) -> {
+                                    campaignStore.incrementFunding(session, campaignId,
+                                            donations.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add),
+                                            donations.size());
+                                    donationEventStore.recordCreated(session, institutionIds.get(campaignId), donations);
+                                });
+                        return null;
                     });
+                } catch (Exception e) {
+                    // Nothing of this shard was recorded, so its gateway ids are freed for a retry
+                    log.error("Failed to record {} transactions on shard: {}", shardTransactions.size(), shard.getKey(), e);
+                    shardTransactions.forEach(this::release);
+                    shard.getValue().forEach(i -> rows[i] = new TransactionBatchResult.Row(i,
+                            TransactionBatchResult.Outcome.FAILED, null, "Failed to record transaction, it can be retried"));
+                    continue;
+                }
+                shardTransactions.stream()
+                        .map(Transaction::getCampaignId)
+                        .distinct()
+                        .forEach(campaignStore::invalidate);
+                shardTransactions.forEach(this::index);
+                shard.getValue().forEach(i -> rows[i] = new TransactionBatchResult.Row(i,
+                        TransactionBatchResult.Outcome.CREATED, transactions.get(i).getTransactionId(), null));
+            }
+            return new TransactionBatchResult(Arrays.asList(rows));
+        } catch (IllegalArgumentException e) {
+            // Re-throw validation errors
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create transaction batch", e);
+        }
+    }
+
+    private static void insertBatch(Connection connection, List<Transaction> transactions) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            int batchStart = 0;
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                statement.setLong(1, transaction.getDonorId());
+                statement.setLong(2, transaction.getCampaignId());
+                statement.setBigDecimal(3, transaction.getAmount());
+                statement.setString(4, transaction.getUpiId());
+                statement.setString(5, transaction.getStatus());
+                statement.setString(6, transaction.getFailureReason());
+                statement.setObject(7, transaction.getIsAnonymous());
+                statement.setString(8, transaction.getDonorMessage());
+                statement.setString(9, transaction.getReceiptNumber());
+                statement.setString(10, transaction.getReceiptUrl());
+                statement.setString(11, transaction.getGatewayTransactionId());
+                statement.addBatch();
+                if (i + 1 - batchStart == JDBC_BATCH_SIZE || i + 1 == transactions.size()) {
+                    executeBatch(statement, transactions.subList(batchStart, i + 1));
+                    batchStart = i + 1;
+                }
+            }
+        }
+    }
+
+    // Generated ids are assigned back in insert order so the rows can be indexed
+    private static void executeBatch(PreparedStatement statement, List<Transaction> batch) throws SQLException {
+        statement.executeBatch();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            for (Transaction transaction : batch) {
+                if (generatedKeys.next()) {
+                    transaction.setTransactionId(generatedKeys.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Update a transaction and record the change for the campaign stats and rollups, in one session on its shard.
+     * Transactions cannot move between campaigns since they are stored on their campaign's shard; a request
+     * without a campaign id keeps the current one.
+     */
+    public void update(String shardKey, String transactionId, Transaction updatedTransaction) {
+        Long id = parseId(transactionId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid transaction ID: " + transactionId));
+        try {
+            transactionRelationalDao.runInSession(shardKeyResolver.forId(id), session -> {
+                Transaction transaction = session.get(Transaction.class, id, LockMode.PESSIMISTIC_WRITE);
+                if (transaction == null) {
+                    return null;
+                }
+                if (updatedTransaction.getCampaignId() != null
+                        && !Objects.equals(transaction.getCampaignId(), updatedTransaction.getCampaignId())) {
+                    throw new IllegalArgumentException("Transaction " + transactionId + " cannot be moved to another campaign");
+                }
+                Transaction before = transaction.toBuilder().build();
+                transaction.setDonorId(updatedTransaction.getDonorId());
+                transaction.setAmount(updatedTransaction.getAmount());
+                transaction.setUpiId(updatedTransaction.getUpiId());
+                transaction.setStatus(updatedTransaction.getStatus());
+                transaction.setFailureReason(updatedTransaction.getFailureReason());
+                transaction.setIsAnonymous(updatedTransaction.getIsAnonymous());
+                transaction.setDonorMessage(updatedTransaction.getDonorMessage());
+                transaction.setReceiptNumber(updatedTransaction.getReceiptNumber());
+                transaction.setReceiptUrl(updatedTransaction.getReceiptUrl());
+                donationEventStore.recordUpdated(session, institutionIdOf(shardKey, transaction.getCampaignId()),
+                        before, transaction);
+                return null;
+            });
+        } catch (IllegalArgumentException e) {
+            // Re-throw validation errors
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to update transaction: " + transactionId, e);
         }
@@ -91,33 +446,184 @@ public class TransactionStore {
         return getById(shardKey, transactionId).isPresent();
     }
 
-    public List<Transaction> getByDonorId(String shardKey, Long donorId) {
+    // Transaction ids are numeric; anything else names no transaction
+    private static Optional<Long> parseId(String transactionId) {
+        try {
+            return Optional.of(Long.valueOf(transactionId));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public List<TransactionSummary> getSummariesByDonorId(String shardKey, Long donorId) {
+        return getSummariesByDonorId(shardKey, donorId, null, MAX_FETCH_COUNT);
+    }
+
+    public List<TransactionSummary> getSummariesByDonorId(String shardKey, Long donorId, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
-                    .add(Restrictions.eq("donorId", donorId));
-            return transactionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return scatterGather.selectProjectedPage(transactionRelationalDao,
+                            () -> DaoUtils.project(DetachedCriteria.forClass(Transaction.class)
+                                    .add(Restrictions.eq("donorId", donorId)), SUMMARY_PROPERTIES),
+                            TransactionSummary.class, ID_PARAM, TransactionSummary::getTransactionId, afterId, pageSize(limit))
+                    .requireComplete();
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch transactions for donor: " + donorId, e);
         }
     }
 
     public List<Transaction> getByCampaignId(String shardKey, Long campaignId) {
+        return getByCampaignId(shardKey, campaignId, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Transaction> getByCampaignId(String shardKey, Long campaignId, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
-                    .add(Restrictions.eq("campaignId", campaignId));
-            return transactionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            DetachedCriteria criteria = DaoUtils.seek(DetachedCriteria.forClass(Transaction.class)
+                    .add(Restrictions.eq("campaignId", campaignId)), ID_PARAM, afterId);
+            return transactionRelationalDao.select(shardKeyResolver.forId(campaignId), criteria, 0, pageSize(limit));
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch transactions for campaign: " + campaignId, e);
         }
     }
 
+    /**
+     * Stream every transaction of a campaign to the consumer over a forward-only cursor.
+     * Rows are evicted from the session once consumed, so memory does not grow with the row count.
+     */
+    public void streamByCampaignId(String shardKey, Long campaignId, Consumer<Transaction> consumer) {
+        try {
+            transactionRelationalDao.runInSession(shardKeyResolver.forId(campaignId), session -> {
+                DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
+                        .add(Restrictions.eq("campaignId", campaignId))
+                        .addOrder(Order.asc(ID_PARAM));
+                try (ScrollableResults results = criteria.getExecutableCriteria(session)
+                        .setReadOnly(true)
+                        .setCacheMode(CacheMode.IGNORE)
+                        .setFetchSize(STREAMING_FETCH_SIZE)
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        Transaction transaction = (Transaction) results.get(0);
+                        consumer.accept(transaction);
+                        session.evict(transaction);
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to stream transactions for campaign: " + campaignId, e);
+        }
+    }
+
+    /**
+     * Donors with the largest summed successful donations to a campaign, aggregated on its shard
+     */
+    public List<DonorTotal> getTopDonors(Long campaignId, int limit) {
+        try {
+            return transactionRelationalDao.runInSession(shardKeyResolver.forId(campaignId), session -> {
+                List<?> rows = session.createNativeQuery(DONOR_TOTALS_SQL + " GROUP BY donor_id ORDER BY total DESC LIMIT :limit")
+                        .setParameter("campaignId", campaignId)
+                        .setParameter("limit", limit)
+                        .getResultList();
+                return rows.stream().map(row -> toDonorTotal((Object[]) row)).collect(Collectors.toList());
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch top donors for campaign: " + campaignId, e);
+        }
+    }
+
+    public Optional<DonorTotal> getDonorTotal(Long campaignId, Long donorId) {
+        try {
+            return transactionRelationalDao.runInSession(shardKeyResolver.forId(campaignId), session -> {
+                List<?> rows = session.createNativeQuery(DONOR_TOTALS_SQL + " AND donor_id = :donorId GROUP BY donor_id")
+                        .setParameter("campaignId", campaignId)
+                        .setParameter("donorId", donorId)
+                        .getResultList();
+                return rows.stream().map(row -> toDonorTotal((Object[]) row)).findFirst();
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch donor total for campaign: " + campaignId, e);
+        }
+    }
+
+    private static DonorTotal toDonorTotal(Object[] row) {
+        // MAX over a bit column comes back as a Boolean or a number depending on the driver
+        boolean anonymous = row[3] instanceof Boolean ? (Boolean) row[3]
+                : row[3] instanceof Number && ((Number) row[3]).intValue() != 0;
+        return new DonorTotal(((Number) row[0]).longValue(), (BigDecimal) row[1], ((Number) row[2]).longValue(), anonymous);
+    }
+
     public List<Transaction> getByStatus(String shardKey, String status) {
+        return getByStatus(shardKey, status, null, MAX_FETCH_COUNT);
+    }
+
+    public List<Transaction> getByStatus(String shardKey, String status, Long afterId, int limit) {
         try {
-            DetachedCriteria criteria = DetachedCriteria.forClass(Transaction.class)
-                    .add(Restrictions.eq("status", status));
-            return transactionRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Transaction.class)
+                    .add(Restrictions.eq("status", status)), afterId, limit);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch transactions with status: " + status, e);
         }
     }
+
+    /**
+     * Page of transactions pending since before the cutoff, in id order across all shards
+     */
+    public List<Transaction> getPendingCreatedBefore(Date cutoff, Long afterId, int limit) {
+        try {
+            return selectPageFromAllShards(() -> DetachedCriteria.forClass(Transaction.class)
+                    .add(Restrictions.eq("status", PENDING))
+                    .add(Restrictions.lt("created", cutoff)), afterId, limit);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch pending transactions created before: " + cutoff, e);
+        }
+    }
+
+    /**
+     * Move pending transactions to the status and failure reason of the given copies, with one locking read
+     * and one session per shard. Transactions no longer pending are left alone, so a concurrent update or
+     * another reconciler is never overridden. Returns the transactions that changed.
+     */
+    public List<Transaction> resolvePending(List<Transaction> resolved) {
+        try {
+            Map<Long, Transaction> resolvedById = resolved.stream()
+                    .collect(Collectors.toMap(Transaction::getTransactionId, transaction -> transaction));
+            Map<Long, Long> institutionIds = campaignStore.getByIds(null, resolved.stream()
+                            .map(Transaction::getCampaignId)
+                            .distinct()
+                            .collect(Collectors.toList())).stream()
+                    .collect(Collectors.toMap(Campaign::getId, Campaign::getInstitutionId));
+            List<Transaction> changed = new ArrayList<>();
+            for (Map.Entry<String, List<Long>> shard : shardKeyResolver.groupById(resolvedById.keySet()).entrySet()) {
+                changed.addAll(transactionRelationalDao.runInSession(shard.getKey(), session -> {
+                    @SuppressWarnings("unchecked")
+                    List<Transaction> pending = DetachedCriteria.forClass(Transaction.class)
+                            .add(Restrictions.in(ID_PARAM, shard.getValue()))
+                            .add(Restrictions.eq("status", PENDING))
+                            .getExecutableCriteria(session)
+                            .setLockMode(LockMode.PESSIMISTIC_WRITE)
+                            .list();
+                    for (Transaction transaction : pending) {
+                        Transaction before = transaction.toBuilder().build();
+                        Transaction target = resolvedById.get(transaction.getTransactionId());
+                        transaction.setStatus(target.getStatus());
+                        transaction.setFailureReason(target.getFailureReason());
+                        donationEventStore.recordUpdated(session, institutionIds.get(transaction.getCampaignId()),
+                                before, transaction);
+                    }
+                    return pending;
+                }));
+            }
+            return changed;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to resolve pending transactions", e);
+        }
+    }
+
+    private List<Transaction> selectPageFromAllShards(Supplier<DetachedCriteria> criteria, Long afterId, int limit) {
+        return scatterGather.selectPage(transactionRelationalDao, criteria, ID_PARAM, Transaction::getTransactionId, afterId, pageSize(limit))
+                .requireComplete();
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_FETCH_COUNT));
+    }
 }
@@ -1,17 +1,28 @@
 package com.example.dao;
 
-import com.example.constants.ShardKey;
 import com.example.entity.User;
+import com.example.sharding.ScatterGather;
+import com.example.sharding.ShardKeyResolver;
+import com.example.sharding.ShardResults;
+import com.example.utils.DaoUtils;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 
 /**
@@ -22,21 +33,28 @@ import java.util.function.UnaryOperator;
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class UserStore {
 
+    private static final String ID_PARAM = "id";
     private static final String EMAIL_PARAM = "email";
     private static final String PAN_PARAM = "pan";
     private static final String IS_BENEFICIARY_PARAM = "isBeneficiary";
     private static final int MAX_FETCH_COUNT = 1000;
+    private static final int SCAN_PAGE_SIZE = 5000;
 
     private final RelationalDao<User> userRelationalDao;
+    private final ShardKeyResolver shardKeyResolver;
+    private final ScatterGather scatterGather;
+    private final UserUniquenessFilter uniquenessFilter;
 
     /**
-     * Create a new user - Always uses shard "1"
+     * Create a new user - Placed on the shard of its email hash
      */
     public User createUser(User user) {
         try {
             log.info("Creating user with email: {}", user.getEmail());
-            Optional<User> savedUser = userRelationalDao.save(ShardKey.SHARD_KEY, user);
-            return savedUser.orElseThrow(() -> new RuntimeException("Failed to save user"));
+            Optional<User> savedUser = userRelationalDao.save(shardKeyResolver.forValue(user.getEmail()), user);
+            User created = savedUser.orElseThrow(() -> new RuntimeException("Failed to save user"));
+            uniquenessFilter.add(created.getEmail(), created.getPan());
+            return created;
         } catch (Exception e) {
             log.error("Failed to create user: {}", user.getEmail(), e);
             throw new RuntimeException("Failed to create user: " + user.getEmail(), e);
@@ -44,7 +62,8 @@ public class UserStore {
     }
 
     /**
-     * Get user by email - Always uses shard "1"
+     * Get user by email - Looks at the shard of the email hash first. A user whose email was
+     * changed stays on the shard of its original email, so the other shards are checked on a miss.
      */
     public Optional<User> getUserByEmail(String email) {
         try {
@@ -52,7 +71,14 @@ public class UserStore {
             DetachedCriteria criteria = DetachedCriteria.forClass(User.class);
             criteria.add(Restrictions.eq(EMAIL_PARAM, email));
 
-            List<User> users = userRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, 1);
+            String homeShardKey = shardKeyResolver.forValue(email);
+            List<User> users = userRelationalDao.select(homeShardKey, criteria, 0, 1);
+            if (users.isEmpty()) {
+                List<String> otherShardKeys = new ArrayList<>(shardKeyResolver.allShards());
+                otherShardKeys.remove(homeShardKey);
+                users = findOne(otherShardKeys, () -> DetachedCriteria.forClass(User.class)
+                        .add(Restrictions.eq(EMAIL_PARAM, email)));
+            }
             return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
         } catch (Exception e) {
             log.error("Failed to fetch user by email: {}", email, e);
@@ -61,15 +87,13 @@ public class UserStore {
     }
 
     /**
-     * Get user by PAN - Always uses shard "1"
+     * Get user by PAN - Checks every shard
      */
     public Optional<User> getUserByPan(String pan) {
         try {
             log.debug("Fetching user by PAN: {}", pan);
-            DetachedCriteria criteria = DetachedCriteria.forClass(User.class);
-            criteria.add(Restrictions.eq(PAN_PARAM, pan));
-
-            List<User> users = userRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, 1);
+            List<User> users = findOne(shardKeyResolver.allShards(), () -> DetachedCriteria.forClass(User.class)
+                    .add(Restrictions.eq(PAN_PARAM, pan)));
             return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
         } catch (Exception e) {
             log.error("Failed to fetch user by PAN: {}", pan, e);
@@ -78,12 +102,12 @@ public class UserStore {
     }
 
     /**
-     * Get user by ID - Always uses shard "1"
+     * Get user by ID - Routed by the shard encoded in the ID
      */
     public Optional<User> getUserById(String lookupKey, Long id) {
         try {
             log.debug("Fetching user by ID: {}", id);
-            return userRelationalDao.get(ShardKey.SHARD_KEY, id);
+            return userRelationalDao.get(shardKeyResolver.forId(id), id);
         } catch (Exception e) {
             log.error("Failed to fetch user by ID: {}", id, e);
             throw new RuntimeException("Failed to fetch user by ID: " + id, e);
@@ -91,15 +115,37 @@ public class UserStore {
     }
 
     /**
-     * Get all beneficiaries - Always uses shard "1"
+     * Get the subset of the given IDs that belong to existing users - One id-only query per shard
+     */
+    @SuppressWarnings("unchecked")
+    public Set<Long> getExistingIds(Collection<Long> ids) {
+        try {
+            log.debug("Checking existence of {} users", ids.size());
+            Set<Long> existingIds = new HashSet<>();
+            for (Map.Entry<String, List<Long>> shard : shardKeyResolver.groupById(ids).entrySet()) {
+                existingIds.addAll(userRelationalDao.runInSession(shard.getKey(), session ->
+                        (List<Long>) DetachedCriteria.forClass(User.class)
+                                .add(Restrictions.in(ID_PARAM, shard.getValue()))
+                                .setProjection(Projections.id())
+                                .getExecutableCriteria(session)
+                                .list()));
+            }
+            return existingIds;
+        } catch (Exception e) {
+            log.error("Failed to check existence of users: {}", ids, e);
+            throw new RuntimeException("Failed to check existence of users", e);
+        }
+    }
+
+    /**
+     * Get all beneficiaries - Checks every shard
      */
     public List<User> getAllBeneficiaries(String lookupKey) {
         try {
             log.debug("Fetching all beneficiaries");
-            DetachedCriteria criteria = DetachedCriteria.forClass(User.class);
-            criteria.add(Restrictions.eq(IS_BENEFICIARY_PARAM, true));
-
-            return userRelationalDao.select(ShardKey.SHARD_KEY, criteria, 0, MAX_FETCH_COUNT);
+            return scatterGather.selectPage(userRelationalDao, () -> DetachedCriteria.forClass(User.class)
+                    .add(Restrictions.eq(IS_BENEFICIARY_PARAM, true)),
+                    "id", User::getId, null, MAX_FETCH_COUNT).requireComplete();
         } catch (Exception e) {
             log.error("Failed to fetch beneficiaries", e);
             throw new RuntimeException("Failed to fetch beneficiaries", e);
@@ -107,15 +153,19 @@ public class UserStore {
     }
 
     /**
-     * Update user - Always uses shard "1"
+     * Update user - Routed by the shard encoded in the user ID
      */
-    public void updateUser(String email, UnaryOperator<User> mutator) {
+    public void updateUser(Long id, String email, UnaryOperator<User> mutator) {
         try {
             log.info("Updating user with email: {}", email);
-            userRelationalDao.update(ShardKey.SHARD_KEY,
+            userRelationalDao.update(shardKeyResolver.forId(id),
                 DetachedCriteria.forClass(User.class)
                     .add(Restrictions.eq(EMAIL_PARAM, email)),
-                mutator);
+                user -> {
+                    User updated = mutator.apply(user);
+                    uniquenessFilter.add(updated.getEmail(), updated.getPan());
+                    return updated;
+                });
         } catch (Exception e) {
             log.error("Failed to update user: {}", email, e);
             throw new RuntimeException("Failed to update user: " + email, e);
@@ -123,16 +173,56 @@ public class UserStore {
     }
 
     /**
-     * Check if user exists by email
+     * Visit the email and PAN of every user, shard by shard in id order - Returns the number of users visited
+     */
+    @SuppressWarnings("unchecked")
+    public long forEachEmailAndPan(BiConsumer<String, String> consumer) {
+        try {
+            long visited = 0;
+            for (String shardKey : shardKeyResolver.allShards()) {
+                Long afterId = null;
+                List<Object[]> rows;
+                do {
+                    DetachedCriteria criteria = DaoUtils.seek(DetachedCriteria.forClass(User.class), ID_PARAM, afterId)
+                            .setProjection(Projections.projectionList()
+                                    .add(Projections.id())
+                                    .add(Projections.property(EMAIL_PARAM))
+                                    .add(Projections.property(PAN_PARAM)));
+                    rows = userRelationalDao.runInSession(shardKey, session ->
+                            (List<Object[]>) criteria.getExecutableCriteria(session)
+                                    .setMaxResults(SCAN_PAGE_SIZE)
+                                    .list());
+                    for (Object[] row : rows) {
+                        consumer.accept((String) row[1], (String) row[2]);
+                        afterId = (Long) row[0];
+                    }
+                    visited += rows.size();
+                } while (rows.size() == SCAN_PAGE_SIZE);
+            }
+            return visited;
+        } catch (Exception e) {
+            log.error("Failed to scan users", e);
+            throw new RuntimeException("Failed to scan users", e);
+        }
+    }
+
+    /**
+     * Check if user exists by email - Definite misses are answered by the uniqueness filter
      */
     public boolean existsByEmail(String email) {
-        return getUserByEmail(email).isPresent();
+        return uniquenessFilter.mightContainEmail(email) && getUserByEmail(email).isPresent();
     }
 
     /**
-     * Check if user exists by PAN
+     * Check if user exists by PAN - Definite misses are answered by the uniqueness filter
      */
     public boolean existsByPan(String pan) {
-        return getUserByPan(pan).isPresent();
+        return uniquenessFilter.mightContainPan(pan) && getUserByPan(pan).isPresent();
+    }
+
+    // A hit on any shard answers the lookup, but a miss only counts once every shard has answered
+    private List<User> findOne(List<String> shardKeys, Supplier<DetachedCriteria> criteria) {
+        ShardResults<User> results = scatterGather.select(userRelationalDao, shardKeys, criteria, 1);
+        return results.getItems().isEmpty() ? results.requireComplete() : results.getItems();
     }
 }
@@ -0,0 +1,99 @@
+package com.example.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.UserFilterConfig;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Bloom filter over the emails and PANs of all users, answering "definitely not registered"
+ * without a database hit. Until the startup scan completes every value is reported as possibly present.
+ *
+ * After the scan the filter only sees users created through this instance. Duplicate emails from
+ * other instances are still rejected by the unique email column, but PAN has no such constraint,
+ * so it stays disabled unless a single instance registers users.
+ */
+@Slf4j
+@Singleton
+public class UserUniquenessFilter implements Managed {
+
+    private static final String EMAIL_PREFIX = "email:";
+    private static final String PAN_PREFIX = "pan:";
+
+    private final UserFilterConfig config;
+    private final Provider<UserStore> userStore;
+    private final BloomFilter<CharSequence> filter;
+    private volatile boolean ready = false;
+
+    @Inject
+    public UserUniquenessFilter(MyDropwizardConfiguration configuration,
+                                Provider<UserStore> userStore,
+                                MetricRegistry metricRegistry) {
+        this.config = configuration.getUserFilter();
+        this.userStore = userStore;
+        this.filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                config.getExpectedUsers(), config.getFalsePositiveRate());
+        metricRegistry.register(MetricRegistry.name(UserUniquenessFilter.class, "size"),
+                (Gauge<Long>) filter::approximateElementCount);
+        metricRegistry.register(MetricRegistry.name(UserUniquenessFilter.class, "falsePositiveRate"),
+                (Gauge<Double>) filter::expectedFpp);
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "user-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public void stop() {
+        // Nothing to release
+    }
+
+    public void add(String email, String pan) {
+        if (email != null) {
+            filter.put(EMAIL_PREFIX + normalize(email));
+        }
+        if (pan != null) {
+            filter.put(PAN_PREFIX + normalize(pan));
+        }
+    }
+
+    public boolean mightContainEmail(String email) {
+        return !ready || email == null || filter.mightContain(EMAIL_PREFIX + normalize(email));
+    }
+
+    public boolean mightContainPan(String pan) {
+        return !ready || pan == null || filter.mightContain(PAN_PREFIX + normalize(pan));
+    }
+
+    private void load() {
+        try {
+            long started = System.currentTimeMillis();
+            long users = userStore.get().forEachEmailAndPan(this::add);
+            ready = true;
+            log.info("Loaded {} users into uniqueness filter in {} ms", users, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Failed to load uniqueness filter, uniqueness checks will use the database", e);
+        }
+    }
+
+    // MySQL compares emails and PANs case-insensitively
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
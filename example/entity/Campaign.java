@@ -16,7 +16,7 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Campaign {
 
     @Id
@@ -36,6 +36,10 @@ public class Campaign {
     @Column(name = "description", nullable = false, columnDefinition = "TEXT")
     private String description;
 
+    // e.g. Medical, Education, Emergency, Social Cause
+    @Column(name = "category", length = 100)
+    private String category;
+
     @Column(name = "fund_raised", precision = 15, scale = 2)
     private BigDecimal fundRaised;
 
@@ -60,6 +64,13 @@ public class Campaign {
     @Column(name = "priority_score")
     private Integer priorityScore;
 
+    @Column(name = "is_featured")
+    private Boolean isFeatured;
+
+    // LOW, MEDIUM, HIGH, CRITICAL
+    @Column(name = "urgency_level", length = 20)
+    private String urgencyLevel;
+
     @Column(name = "created", columnDefinition = "datetime default current_timestamp", updatable = false, insertable = false)
     @Generated(value = GenerationTime.INSERT)
     private Date created;
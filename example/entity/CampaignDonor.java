@@ -0,0 +1,36 @@
+package com.example.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Number of successful donations a donor has made to a campaign, kept to count a campaign's distinct donors
+ * without querying its transactions. Rows live on the campaign's shard.
+ */
+@Entity
+@Table(name = "campaign_donors",
+        uniqueConstraints = @UniqueConstraint(name = "uk_campaign_donors_donor", columnNames = {"campaign_id", "donor_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CampaignDonor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "donor_id", nullable = false)
+    private Long donorId;
+
+    @Column(name = "successes", nullable = false, columnDefinition = "bigint default 0")
+    private Long successes;
+}
@@ -0,0 +1,62 @@
+package com.example.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Date;
+
+/**
+ * Donation statistics of a campaign, maintained incrementally from the donation events of its transactions.
+ * Amounts and donor counts only include successful donations.
+ */
+@Entity
+@Table(name = "campaign_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CampaignStats {
+
+    @Id
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
+    @Column(name = "total_raised", nullable = false, precision = 15, scale = 2, columnDefinition = "decimal(15,2) default 0")
+    private BigDecimal totalRaised;
+
+    @Column(name = "donor_count", nullable = false, columnDefinition = "bigint default 0")
+    private Long donorCount;
+
+    @Column(name = "donation_count", nullable = false, columnDefinition = "bigint default 0")
+    private Long donationCount;
+
+    @Column(name = "success_count", nullable = false, columnDefinition = "bigint default 0")
+    private Long successCount;
+
+    @Column(name = "failed_count", nullable = false, columnDefinition = "bigint default 0")
+    private Long failedCount;
+
+    @Column(name = "last_donation_at")
+    private Date lastDonationAt;
+
+    public static CampaignStats empty(Long campaignId) {
+        return new CampaignStats(campaignId, BigDecimal.ZERO, 0L, 0L, 0L, 0L, null);
+    }
+
+    /**
+     * Average successful gift
+     */
+    @JsonProperty
+    public BigDecimal getAverageGift() {
+        if (successCount == null || successCount == 0) {
+            return BigDecimal.ZERO;
+        }
+        return totalRaised.divide(BigDecimal.valueOf(successCount), 2, RoundingMode.HALF_UP);
+    }
+}
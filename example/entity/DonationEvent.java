@@ -0,0 +1,64 @@
+package com.example.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * A change to a donation not yet applied to the campaign stats and donation rollups.
+ * Events are appended in the session that changes the transaction, on its campaign's shard, and deleted once
+ * applied. A created donation has no before side.
+ */
+@Entity
+@Table(name = "donation_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DonationEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "institution_id")
+    private Long institutionId;
+
+    // Creation time of the donation, which picks its rollup buckets
+    @Column(name = "donated_at", nullable = false)
+    private Date donatedAt;
+
+    @Column(name = "before_donor_id")
+    private Long beforeDonorId;
+
+    @Column(name = "before_amount", precision = 15, scale = 2)
+    private BigDecimal beforeAmount;
+
+    @Column(name = "before_status", length = 50)
+    private String beforeStatus;
+
+    @Column(name = "after_donor_id", nullable = false)
+    private Long afterDonorId;
+
+    @Column(name = "after_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal afterAmount;
+
+    @Column(name = "after_status", nullable = false, length = 50)
+    private String afterStatus;
+
+    public boolean isCreation() {
+        return beforeStatus == null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Successful donations summed over one time bucket, for a campaign or for an institution.
+ * Rows live on the shard of the campaigns they count, so an institution has a partial rollup on every
+ * shard holding one of its campaigns.
+ */
+@Entity
+@Table(name = "donation_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_donation_rollups_bucket",
+                columnNames = {"scope", "scope_id", "granularity", "bucket_start"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DonationRollup {
+
+    public static final String CAMPAIGN = "CAMPAIGN";
+    public static final String INSTITUTION = "INSTITUTION";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "scope", nullable = false, length = 20)
+    private String scope;
+
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+
+    @Column(name = "granularity", nullable = false, length = 10)
+    private String granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Date bucketStart;
+
+    @Column(name = "amount", nullable = false, precision = 15, scale = 2, columnDefinition = "decimal(15,2) default 0")
+    private BigDecimal amount;
+
+    @Column(name = "donations", nullable = false, columnDefinition = "bigint default 0")
+    private Long donations;
+}
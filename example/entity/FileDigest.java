@@ -0,0 +1,28 @@
+package com.example.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Global index row mapping the SHA-256 digest of uploaded content to the Docstore file holding it.
+ * Rows are placed by hashing the digest.
+ */
+@Entity
+@Table(name = "file_digests")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileDigest {
+
+    @Id
+    @Column(name = "digest", length = 80)
+    private String digest;
+
+    @Column(name = "file_id", nullable = false)
+    private String fileId;
+}
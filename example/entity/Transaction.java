@@ -16,7 +16,7 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Transaction {
 
     @Id
@@ -37,6 +37,10 @@ public class Transaction {
 //    @Column(name = "payment_gateway", length = 100)
 //    private String paymentGateway;
 
+    // Indexed globally in transaction_lookup and never changed once set
+    @Column(name = "gateway_transaction_id", length = 255, updatable = false)
+    private String gatewayTransactionId;
+
 
     @Column(name = "upi_id", length = 255)
     private String upiId;
@@ -65,4 +69,13 @@ public class Transaction {
     @Column(name = "updated", columnDefinition = "datetime default current_timestamp on update current_timestamp", updatable = false, insertable = false)
     @Generated(value = GenerationTime.ALWAYS)
     private Date updated;
+
+    public void markAsSuccess() {
+        this.status = "SUCCESS";
+    }
+
+    public void markAsFailed(String reason) {
+        this.status = "FAILED";
+        this.failureReason = reason;
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Global index row mapping a payment gateway transaction id to the transaction it belongs to.
+ * Rows are placed by hashing the gateway id; the transaction's shard is encoded in its id.
+ * A row is inserted as a reservation, without a transaction id, before the transaction is recorded, so its
+ * primary key is what makes gateway ids unique. The campaign tells where to look for the transaction.
+ */
+@Entity
+@Table(name = "transaction_lookup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionLookup {
+
+    @Id
+    @Column(name = "gateway_transaction_id", length = 255)
+    private String gatewayTransactionId;
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
+    @Column(name = "reserved_at")
+    private Date reservedAt;
+}
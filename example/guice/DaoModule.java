@@ -1,10 +1,18 @@
 package com.example.guice;
 
+import com.codahale.metrics.MetricRegistry;
 import com.example.MyDropwizardConfiguration;
 import com.example.entity.Campaign;
+import com.example.entity.CampaignStats;
+import com.example.entity.DonationEvent;
+import com.example.entity.DonationRollup;
+import com.example.entity.FileDigest;
 import com.example.entity.Institution;
 import com.example.entity.Transaction;
+import com.example.entity.TransactionLookup;
 import com.example.entity.User;
+import com.example.sharding.ShardKeyResolver;
+import com.example.sharding.ShardKeyResolverImpl;
 import com.example.utils.DaoUtils;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -38,12 +46,50 @@ public class DaoModule extends AbstractModule {
         return DaoUtils.createRelationalDao(dbShardingBundle, Transaction.class);
     }
 
+    @Provides
+    @Singleton
+    public RelationalDao<TransactionLookup> provideTransactionLookupDAO() {
+        return DaoUtils.createRelationalDao(dbShardingBundle, TransactionLookup.class);
+    }
+
     @Provides
     @Singleton
     public RelationalDao<Campaign> provideCampaignDAO() {
         return DaoUtils.createRelationalDao(dbShardingBundle, Campaign.class);
     }
 
+    @Provides
+    @Singleton
+    public RelationalDao<CampaignStats> provideCampaignStatsDAO() {
+        return DaoUtils.createRelationalDao(dbShardingBundle, CampaignStats.class);
+    }
+
+    @Provides
+    @Singleton
+    public RelationalDao<DonationRollup> provideDonationRollupDAO() {
+        return DaoUtils.createRelationalDao(dbShardingBundle, DonationRollup.class);
+    }
+
+    @Provides
+    @Singleton
+    public RelationalDao<DonationEvent> provideDonationEventDAO() {
+        return DaoUtils.createRelationalDao(dbShardingBundle, DonationEvent.class);
+    }
+
+    @Provides
+    @Singleton
+    public RelationalDao<FileDigest> provideFileDigestDAO() {
+        return DaoUtils.createRelationalDao(dbShardingBundle, FileDigest.class);
+    }
+
+    @Provides
+    @Singleton
+    public ShardKeyResolver provideShardKeyResolver(RelationalDao<Campaign> campaignRelationalDao,
+                                                    MetricRegistry metricRegistry) {
+        return new ShardKeyResolverImpl(campaignRelationalDao.getShardCalculator(),
+                dbShardingBundle.getSessionFactories().size(), metricRegistry);
+    }
+
     @Override
     public void configure() {
         //bind(ExpenseStore.class).annotatedWith(Names.named("mockExpenseStore")).to(MockExpenseStore.class).in(Singleton.class);
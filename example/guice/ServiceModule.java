@@ -4,8 +4,10 @@ import com.codahale.metrics.MetricRegistry;
 import com.example.MyDropwizardConfiguration;
 import com.example.bindings.InjectableNameBindings;
 import com.example.resources.CampaignResource;
+import com.example.resources.DashboardResource;
 import com.example.resources.InstitutionResource;
 import com.example.resources.TransactionResource;
+import com.example.resources.UploadResource;
 import com.example.resources.UserResource;
 import com.example.service.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -28,24 +30,44 @@ import java.security.GeneralSecurityException;
 public class ServiceModule extends AbstractModule {
 
     private final OlympusIMBundle<MyDropwizardConfiguration> olympusIMBundle;
+    private final MyDropwizardConfiguration configuration;
+    private final MetricRegistry metricRegistry;
+    private final ObjectMapper objectMapper;
 
-    public ServiceModule(OlympusIMBundle<MyDropwizardConfiguration> olympusIMBundle) {
+    public ServiceModule(OlympusIMBundle<MyDropwizardConfiguration> olympusIMBundle,
+                         MyDropwizardConfiguration configuration,
+                         MetricRegistry metricRegistry,
+                         ObjectMapper objectMapper) {
         this.olympusIMBundle = olympusIMBundle;
+        this.configuration = configuration;
+        this.metricRegistry = metricRegistry;
+        this.objectMapper = objectMapper;
     }
 
     @Override
     protected void configure() {
+        // Share the application configuration, Dropwizard metric registry and object mapper
+        bind(MyDropwizardConfiguration.class).toInstance(configuration);
+        bind(MetricRegistry.class).toInstance(metricRegistry);
+        bind(ObjectMapper.class).toInstance(objectMapper);
+
         // Bind Services
         bind(UserService.class).to(UserServiceImpl.class).in(Singleton.class);
         bind(InstitutionService.class).to(InstitutionServiceImpl.class).in(Singleton.class);
         bind(TransactionService.class).to(TransactionServiceImpl.class).in(Singleton.class);
         bind(CampaignService.class).to(CampaignServiceImpl.class).in(Singleton.class);
+        bind(DashboardService.class).to(DashboardServiceImpl.class).in(Singleton.class);
+        bind(UploadJobService.class).to(UploadJobServiceImpl.class).in(Singleton.class);
+        // Replace with the payment gateway's client to resolve pending transactions for real
+        bind(GatewayStatusClient.class).to(StubGatewayStatusClient.class).in(Singleton.class);
 
         // Bind Resources
         bind(UserResource.class).in(Singleton.class);
         bind(InstitutionResource.class).in(Singleton.class);
         bind(TransactionResource.class).in(Singleton.class);
         bind(CampaignResource.class).in(Singleton.class);
+        bind(DashboardResource.class).in(Singleton.class);
+        bind(UploadResource.class).in(Singleton.class);
     }
 
 //    @Provides
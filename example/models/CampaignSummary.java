@@ -0,0 +1,47 @@
+package com.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Columns of a campaign shown on campaign cards and lists, without the description and review fields
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class CampaignSummary {
+
+    private Long id;
+
+    private Long beneficiaryId;
+
+    private Long institutionId;
+
+    private String title;
+
+    private String category;
+
+    private BigDecimal fundRaised;
+
+    private Integer donorCount;
+
+    private Boolean isLive;
+
+    private Boolean isApproved;
+
+    private Boolean isFulfilled;
+
+    private Boolean isFeatured;
+
+    private String urgencyLevel;
+
+    private Integer priorityScore;
+
+    private Date created;
+}
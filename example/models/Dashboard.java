@@ -0,0 +1,34 @@
+package com.example.models;
+
+import com.example.entity.Campaign;
+import com.example.entity.Institution;
+import com.example.entity.Transaction;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Composite payload of the dashboard pages. Sections that failed or timed out are null
+ * and named in failedSections.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Dashboard {
+
+    private Institution institution;
+
+    private List<Campaign> campaigns;
+
+    private List<Campaign> approvedCampaigns;
+
+    private List<Transaction> transactions;
+
+    private List<Institution> institutions;
+
+    private List<String> failedSections;
+}
@@ -0,0 +1,27 @@
+package com.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Summed successful donations of one donor to a campaign
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class DonorTotal {
+
+    private Long donorId;
+
+    private BigDecimal totalAmount;
+
+    private long donations;
+
+    // Set when any of the donor's donations to the campaign was anonymous
+    private boolean anonymous;
+}
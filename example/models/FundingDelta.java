@@ -0,0 +1,22 @@
+package com.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount and number of donations to add to a campaign's funding totals
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FundingDelta {
+
+    private Long campaignId;
+
+    private BigDecimal amount;
+
+    private long donations;
+}
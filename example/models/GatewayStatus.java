@@ -0,0 +1,31 @@
+package com.example.models;
+
+import lombok.Value;
+
+/**
+ * Status of a payment as reported by the payment gateway
+ */
+@Value
+public class GatewayStatus {
+
+    public enum State {
+        PENDING, SUCCESS, FAILED
+    }
+
+    State state;
+
+    // Set for failed payments
+    String failureReason;
+
+    public static GatewayStatus pending() {
+        return new GatewayStatus(State.PENDING, null);
+    }
+
+    public static GatewayStatus success() {
+        return new GatewayStatus(State.SUCCESS, null);
+    }
+
+    public static GatewayStatus failed(String reason) {
+        return new GatewayStatus(State.FAILED, reason);
+    }
+}
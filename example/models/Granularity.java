@@ -0,0 +1,50 @@
+package com.example.models;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Width of a donation rollup bucket. Buckets are truncated in the database time zone, so rows written
+ * by the application and by a backfill line up.
+ */
+public enum Granularity {
+    MINUTE("%Y-%m-%d %H:%i:00", Duration.ofMinutes(1), Duration.ofHours(6)),
+    HOUR("%Y-%m-%d %H:00:00", Duration.ofHours(1), Duration.ofDays(7)),
+    DAY("%Y-%m-%d 00:00:00", Duration.ofDays(1), Duration.ofDays(90));
+
+    private final String format;
+    private final Duration width;
+    private final Duration defaultWindow;
+
+    Granularity(String format, Duration width, Duration defaultWindow) {
+        this.format = format;
+        this.width = width;
+        this.defaultWindow = defaultWindow;
+    }
+
+    public static Granularity parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Granularity must be one of MINUTE, HOUR or DAY");
+        }
+    }
+
+    /**
+     * SQL expression truncating a datetime expression to the start of its bucket
+     */
+    public String bucketStart(String datetime) {
+        return "DATE_FORMAT(" + datetime + ", '" + format + "')";
+    }
+
+    public Duration getWidth() {
+        return width;
+    }
+
+    /**
+     * Time range charted when the caller does not give one
+     */
+    public Duration getDefaultWindow() {
+        return defaultWindow;
+    }
+}
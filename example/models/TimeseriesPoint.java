@@ -0,0 +1,23 @@
+package com.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Successful donations received in the bucket starting at bucketStart
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeseriesPoint {
+
+    private Date bucketStart;
+
+    private BigDecimal amount;
+
+    private long donations;
+}
@@ -0,0 +1,50 @@
+package com.example.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of every row of a transaction batch, in request order. Shards commit independently, so a batch
+ * can be partly recorded; rows that failed can be resent as is, since rows already recorded come back as duplicates.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionBatchResult {
+
+    private List<Row> rows;
+
+    public long count(Outcome outcome) {
+        return rows.stream().filter(row -> row.getOutcome() == outcome).count();
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return count(Outcome.FAILED) == 0;
+    }
+
+    public enum Outcome {
+        CREATED,
+        // The gateway transaction id was already recorded, by an earlier attempt or another request
+        DUPLICATE,
+        FAILED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+
+        private int index;
+
+        private Outcome outcome;
+
+        private Long transactionId;
+
+        private String error;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Columns of a transaction shown in donation histories, without the donor message and failure reason
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSummary {
+
+    private Long transactionId;
+
+    private Long donorId;
+
+    private Long campaignId;
+
+    private BigDecimal amount;
+
+    private String status;
+
+    private Boolean isAnonymous;
+
+    private String receiptNumber;
+
+    private Date created;
+}
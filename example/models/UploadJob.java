@@ -0,0 +1,53 @@
+package com.example.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.UUID;
+
+/**
+ * Progress of an asynchronous upload. Fields are updated by the uploading thread while clients poll.
+ */
+@Data
+public class UploadJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String jobId;
+
+    private final Long campaignId;
+
+    private final String fileName;
+
+    private final long totalBytes;
+
+    private volatile long uploadedBytes;
+
+    private volatile Status status = Status.QUEUED;
+
+    // Set once the upload succeeded
+    private volatile String fileId;
+
+    // Set once the upload failed
+    private volatile String error;
+
+    public static UploadJob create(Long campaignId, String fileName, long totalBytes) {
+        return new UploadJob(UUID.randomUUID().toString(), campaignId, fileName, totalBytes);
+    }
+
+    /**
+     * Share of the file uploaded, in percent
+     */
+    @JsonProperty
+    public int getProgress() {
+        if (status == Status.SUCCEEDED) {
+            return 100;
+        }
+        if (totalBytes == 0) {
+            return 0;
+        }
+        return (int) Math.min(100, uploadedBytes * 100 / totalBytes);
+    }
+}
@@ -1,24 +1,48 @@
 package com.example.resources;
 
+import com.example.api.ByteRange;
+import com.example.api.Page;
 import com.example.entity.Campaign;
+import com.example.models.CampaignSummary;
+import com.example.models.Granularity;
+import com.example.models.UploadJob;
+import com.example.service.CampaignFilterIndex;
 import com.example.service.CampaignService;
+import com.example.service.DocstoreFileCache;
 import com.example.service.DosctoreService;
+import com.example.service.LiveCampaignFeed;
+import com.example.service.UploadJobService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.glassfish.jersey.server.CloseableService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.File;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 @Path("/campaigns")
 @Produces(MediaType.APPLICATION_JSON)
@@ -31,11 +55,24 @@ public class CampaignResource {
 
     private final CampaignService campaignService;
     private final DosctoreService dosctoreService;
+    private final UploadJobService uploadJobService;
+    private final DocstoreFileCache docstoreFileCache;
 
     @GET
-    public Response getAllCampaigns(@QueryParam("shardKey") String shardKey) {
-        List<Campaign> campaigns = campaignService.getAllCampaigns(shardKey);
-        return Response.ok(campaigns).build();
+    public Response getAllCampaigns(@QueryParam("shardKey") String shardKey,
+                                    @QueryParam("ids") String ids,
+                                    @QueryParam("pageToken") String pageToken,
+                                    @QueryParam("limit") Integer limit) {
+        if (ids != null) {
+            return getCampaignsByIds(shardKey, parseIds(ids));
+        }
+        if (pageToken == null && limit == null) {
+            List<Campaign> campaigns = campaignService.getAllCampaigns(shardKey);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Campaign> campaigns = campaignService.getAllCampaigns(shardKey, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, Campaign::getId)).build();
     }
 
     @GET
@@ -47,6 +84,61 @@ public class CampaignResource {
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
 
+    @GET
+    @Path("/{id}/stats")
+    public Response getCampaignStats(@QueryParam("shardKey") String shardKey,
+                                     @PathParam("id") Long id) {
+        return campaignService.getCampaignStats(shardKey, id)
+                .map(stats -> Response.ok(stats).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    /**
+     * Successful donations per bucket, read from the rollups. from and to are epoch milliseconds.
+     */
+    @GET
+    @Path("/{id}/timeseries")
+    public Response getCampaignTimeseries(@QueryParam("shardKey") String shardKey,
+                                          @PathParam("id") Long id,
+                                          @QueryParam("granularity") @DefaultValue("HOUR") String granularity,
+                                          @QueryParam("from") Long from,
+                                          @QueryParam("to") Long to) {
+        try {
+            return campaignService.getCampaignTimeseries(shardKey, id, Granularity.parse(granularity),
+                            from == null ? null : new Date(from), to == null ? null : new Date(to))
+                    .map(points -> Response.ok(points).build())
+                    .orElse(Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
+    @GET
+    @Path("/{id}/top-donors")
+    public Response getTopDonors(@QueryParam("shardKey") String shardKey,
+                                 @PathParam("id") Long id,
+                                 @QueryParam("limit") @DefaultValue("10") int limit) {
+        try {
+            return campaignService.getTopDonors(shardKey, id, limit)
+                    .map(donors -> Response.ok(donors).build())
+                    .orElse(Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
+    @POST
+    @Path("/by-ids")
+    public Response getCampaignsByIds(@QueryParam("shardKey") String shardKey,
+                                      List<Long> ids) {
+        try {
+            List<Campaign> campaigns = campaignService.getCampaignsByIds(shardKey, ids);
+            return Response.ok(campaigns).build();
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
     @POST
     public Response createCampaign(@QueryParam("shardKey") String shardKey,
                                    Campaign campaign) {
@@ -59,7 +151,11 @@ public class CampaignResource {
     public Response updateCampaign(@QueryParam("shardKey") String shardKey,
                                    @PathParam("id") Long id,
                                    Campaign campaign) {
-        campaignService.updateCampaign(shardKey, id, campaign);
+        try {
+            campaignService.updateCampaign(shardKey, id, campaign);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
         return Response.ok().build();
     }
 
@@ -74,45 +170,152 @@ public class CampaignResource {
     @GET
     @Path("/beneficiary/{beneficiaryId}")
     public Response getCampaignsByBeneficiaryId(@QueryParam("shardKey") String shardKey,
-                                                @PathParam("beneficiaryId") Long beneficiaryId) {
-        List<Campaign> campaigns = campaignService.getCampaignsByBeneficiaryId(shardKey, beneficiaryId);
-        return Response.ok(campaigns).build();
+                                                @PathParam("beneficiaryId") Long beneficiaryId,
+                                                @QueryParam("pageToken") String pageToken,
+                                                @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Campaign> campaigns = campaignService.getCampaignsByBeneficiaryId(shardKey, beneficiaryId);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Campaign> campaigns = campaignService.getCampaignsByBeneficiaryId(shardKey, beneficiaryId, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, Campaign::getId)).build();
     }
 
     @GET
     @Path("/institution/{institutionId}")
     public Response getCampaignsByInstitutionId(@QueryParam("shardKey") String shardKey,
-                                                @PathParam("institutionId") Long institutionId) {
-        List<Campaign> campaigns = campaignService.getCampaignsByInstitutionId(shardKey, institutionId);
-        return Response.ok(campaigns).build();
+                                                @PathParam("institutionId") Long institutionId,
+                                                @QueryParam("pageToken") String pageToken,
+                                                @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<CampaignSummary> campaigns = campaignService.getCampaignSummariesByInstitutionId(shardKey, institutionId);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<CampaignSummary> campaigns = campaignService.getCampaignSummariesByInstitutionId(shardKey, institutionId,
+                Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, CampaignSummary::getId)).build();
     }
 
     @GET
     @Path("/live")
-    public Response getLiveCampaigns(@QueryParam("shardKey") String shardKey) {
-        List<Campaign> campaigns = campaignService.getLiveCampaigns(shardKey);
-        return Response.ok(campaigns).build();
+    public Response getLiveCampaigns(@QueryParam("shardKey") String shardKey,
+                                     @QueryParam("pageToken") String pageToken,
+                                     @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<CampaignSummary> campaigns = campaignService.getLiveCampaignSummaries(shardKey);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<CampaignSummary> campaigns = campaignService.getLiveCampaignSummaries(shardKey, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, CampaignSummary::getId)).build();
+    }
+
+    @GET
+    @Path("/search")
+    public Response searchCampaigns(@QueryParam("shardKey") String shardKey,
+                                    @QueryParam("q") String query,
+                                    @QueryParam("limit") Integer limit) {
+        try {
+            List<Campaign> campaigns = campaignService.searchCampaigns(shardKey, query, Page.limit(limit));
+            return Response.ok(campaigns).build();
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
+    @GET
+    @Path("/query")
+    public Response queryCampaigns(@QueryParam("shardKey") String shardKey,
+                                   @QueryParam("live") Boolean live,
+                                   @QueryParam("approved") Boolean approved,
+                                   @QueryParam("fulfilled") Boolean fulfilled,
+                                   @QueryParam("institution") List<String> institutions,
+                                   @QueryParam("beneficiary") List<String> beneficiaries,
+                                   @QueryParam("category") List<String> categories,
+                                   @QueryParam("pageToken") String pageToken,
+                                   @QueryParam("limit") Integer limit) {
+        Map<String, List<String>> filters = new HashMap<>();
+        if (live != null) {
+            filters.put(CampaignFilterIndex.LIVE, List.of(live.toString()));
+        }
+        if (approved != null) {
+            filters.put(CampaignFilterIndex.APPROVED, List.of(approved.toString()));
+        }
+        if (fulfilled != null) {
+            filters.put(CampaignFilterIndex.FULFILLED, List.of(fulfilled.toString()));
+        }
+        if (!institutions.isEmpty()) {
+            filters.put(CampaignFilterIndex.INSTITUTION, institutions);
+        }
+        if (!beneficiaries.isEmpty()) {
+            filters.put(CampaignFilterIndex.BENEFICIARY, beneficiaries);
+        }
+        if (!categories.isEmpty()) {
+            filters.put(CampaignFilterIndex.CATEGORY, categories);
+        }
+        int pageSize = Page.limit(limit);
+        try {
+            List<Long> ids = campaignService.queryCampaignIds(filters, Page.afterId(pageToken), pageSize);
+            List<Campaign> campaigns = ids.isEmpty() ? List.of() : campaignService.getCampaignsByIds(shardKey, ids);
+            return Response.ok(Page.ofIds(campaigns, ids, pageSize)).build();
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
+    @GET
+    @Path("/feed")
+    public Response getRankedLiveCampaigns(@QueryParam("pageToken") String pageToken,
+                                           @QueryParam("limit") Integer limit) {
+        int pageSize = Page.limit(limit);
+        try {
+            List<CampaignSummary> campaigns = campaignService.getRankedLiveCampaigns(Page.cursor(pageToken), pageSize);
+            return Response.ok(Page.ofCursor(campaigns, pageSize, LiveCampaignFeed::cursorOf)).build();
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException("Invalid page token: " + pageToken, Response.Status.BAD_REQUEST);
+        }
     }
 
     @GET
     @Path("/approved")
-    public Response getApprovedCampaigns(@QueryParam("shardKey") String shardKey) {
-        List<Campaign> campaigns = campaignService.getApprovedCampaigns(shardKey);
-        return Response.ok(campaigns).build();
+    public Response getApprovedCampaigns(@QueryParam("shardKey") String shardKey,
+                                         @QueryParam("pageToken") String pageToken,
+                                         @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Campaign> campaigns = campaignService.getApprovedCampaigns(shardKey);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Campaign> campaigns = campaignService.getApprovedCampaigns(shardKey, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, Campaign::getId)).build();
     }
 
     @GET
     @Path("/fulfilled")
-    public Response getFulfilledCampaigns(@QueryParam("shardKey") String shardKey) {
-        List<Campaign> campaigns = campaignService.getFulfilledCampaigns(shardKey);
-        return Response.ok(campaigns).build();
+    public Response getFulfilledCampaigns(@QueryParam("shardKey") String shardKey,
+                                          @QueryParam("pageToken") String pageToken,
+                                          @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Campaign> campaigns = campaignService.getFulfilledCampaigns(shardKey);
+            return Response.ok(campaigns).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Campaign> campaigns = campaignService.getFulfilledCampaigns(shardKey, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(campaigns, pageSize, Campaign::getId)).build();
     }
 
+    /**
+     * Upload a campaign report. With async=true the upload is queued and 202 is returned with a job to poll
+     * at /uploads/{jobId}, instead of holding the request until Docstore has the file.
+     */
     @POST
     @Path("/{id}/upload-report")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     public Response uploadReportFile(@QueryParam("shardKey") String shardKey,
                                      @PathParam("id") Long id,
+                                     @QueryParam("async") @DefaultValue("false") boolean async,
                                      @FormDataParam("file") InputStream fileInputStream,
                                      @FormDataParam("file") FormDataContentDisposition fileMetaData) {
         try {
@@ -121,34 +324,141 @@ public class CampaignResource {
                 throw new WebApplicationException("Campaign not found", Response.Status.NOT_FOUND);
             }
 
-            // Create a temporary file
-            File tempFile = File.createTempFile("report_", "_" + fileMetaData.getFileName());
-            Files.copy(fileInputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-
             // Determine content type
-            String contentType = Files.probeContentType(tempFile.toPath());
+            String contentType = URLConnection.guessContentTypeFromName(fileMetaData.getFileName());
             if (contentType == null) {
                 contentType = "application/octet-stream";
             }
 
-            // Upload to Docstore
-            String fileId = dosctoreService.uploadFile(tempFile, fileMetaData.getFileName(), contentType);
+            if (async) {
+                UploadJob job = uploadJobService.submitReportUpload(shardKey, id, fileInputStream,
+                        fileMetaData.getFileName(), contentType);
+                return Response.accepted(job)
+                        .location(URI.create("/uploads/" + job.getJobId()))
+                        .build();
+            }
+
+            // Stream the upload to Docstore in fixed-size chunks, without a temp file
+            String fileId = dosctoreService.uploadStream(fileInputStream, fileMetaData.getFileName(), contentType);
 
             // Update campaign with file ID using dedicated method
             campaignService.updateReportFileId(shardKey, id, fileId);
 
-            // Clean up temp file
-            tempFile.delete();
-
             return Response.ok()
                     .entity(new FileUploadResponse(fileId, "File uploaded successfully"))
                     .build();
+        } catch (WebApplicationException e) {
+            throw e;
+        } catch (RejectedExecutionException e) {
+            throw new WebApplicationException("Too many report uploads in progress", Response.Status.SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             log.error("Failed to upload report file for campaign: {}", id, e);
             throw new WebApplicationException("Failed to upload report file", Response.Status.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Download a campaign report from the local file cache. The ETag is the SHA-256 of the content, so
+     * If-None-Match revalidates without a transfer, and a single Range (guarded by If-Range) resumes one.
+     * The body is a buffered copy from the cached file into the response stream, not a zero-copy transfer.
+     */
+    @GET
+    @Path("/{id}/report")
+    @Produces(MediaType.WILDCARD)
+    public Response downloadReportFile(@QueryParam("shardKey") String shardKey,
+                                       @PathParam("id") Long id,
+                                       @HeaderParam("Range") String range,
+                                       @HeaderParam("If-Range") String ifRange,
+                                       @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+                                       @Context CloseableService closeableService) {
+        try {
+            Campaign campaign = campaignService.getCampaignById(shardKey, id)
+                    .orElseThrow(() -> new WebApplicationException("Campaign not found", Response.Status.NOT_FOUND));
+            if (campaign.getReportFileId() == null) {
+                throw new WebApplicationException("Campaign has no report", Response.Status.NOT_FOUND);
+            }
+            DocstoreFileCache.CachedFile report = docstoreFileCache.open(campaign.getReportFileId());
+            // Closed when the request completes, whether or not the body is written, as for HEAD or an aborted client
+            closeableService.add(report);
+            EntityTag etag = new EntityTag(report.getSha256());
+            if (matches(ifNoneMatch, etag)) {
+                return Response.notModified(etag).build();
+            }
+
+            // A range is only honoured against the version of the content the client already has part of
+            Optional<ByteRange> byteRange = ifRange == null || ifRange.equals(etag.toString())
+                    ? ByteRange.parse(range, report.getSize())
+                    : Optional.empty();
+            long start = byteRange.map(ByteRange::getStart).orElse(0L);
+            long length = byteRange.map(ByteRange::getLength).orElse(report.getSize());
+            Response.ResponseBuilder response = byteRange
+                    .map(requested -> Response.status(Response.Status.PARTIAL_CONTENT)
+                            .header("Content-Range", requested.toContentRange(report.getSize())))
+                    .orElseGet(Response::ok);
+
+            String fileName = report.getFileName() != null ? report.getFileName() : "report";
+            String contentType = URLConnection.guessContentTypeFromName(fileName);
+            return response
+                    .entity(transfer(report, start, length))
+                    .type(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM)
+                    .tag(etag)
+                    .header("Accept-Ranges", "bytes")
+                    .header(HttpHeaders.CONTENT_LENGTH, length)
+                    .header("Content-Disposition", "inline; filename=\""
+                            + fileName.replaceAll("[\"\\\\\\r\\n]", "_") + "\"")
+                    .build();
+        } catch (WebApplicationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to download report file for campaign: {}", id, e);
+            throw new WebApplicationException("Failed to download report file", Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static List<Long> parseIds(String ids) {
+        try {
+            return Arrays.stream(ids.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList());
+        } catch (NumberFormatException e) {
+            throw new WebApplicationException("Invalid campaign IDs: " + ids, Response.Status.BAD_REQUEST);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, EntityTag etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag.toString()));
+    }
+
+    // Jersey only exposes the response as a stream, so transferTo copies through a bounded buffer rather than
+    // the whole file; the file is never read into the heap at once
+    private StreamingOutput transfer(DocstoreFileCache.CachedFile report, long start, long length) {
+        return output -> {
+            long position = start;
+            try {
+                FileChannel source = report.getChannel();
+                WritableByteChannel target = Channels.newChannel(output);
+                long end = start + length;
+                while (position < end) {
+                    long sent = source.transferTo(position, end - position, target);
+                    if (sent <= 0) {
+                        throw new IOException("Report file ended before byte " + end);
+                    }
+                    position += sent;
+                }
+            } finally {
+                docstoreFileCache.served(report, position - start);
+            }
+        };
+    }
+
     // Response class for file upload
     @lombok.Data
     @lombok.AllArgsConstructor
@@ -0,0 +1,36 @@
+package com.example.resources;
+
+import com.example.service.DashboardService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/dashboard")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+@Tag(name="Dashboard Resource", description="APIs for loading dashboard pages in one call")
+public class DashboardResource {
+
+    private final DashboardService dashboardService;
+
+    @GET
+    public Response getDashboard(@QueryParam("shardKey") String shardKey) {
+        return Response.ok(dashboardService.getDashboard(shardKey)).build();
+    }
+
+    @GET
+    @Path("/institution/{institutionId}")
+    public Response getInstitutionDashboard(@QueryParam("shardKey") String shardKey,
+                                            @PathParam("institutionId") Long institutionId) {
+        return dashboardService.getInstitutionDashboard(shardKey, institutionId)
+                .map(dashboard -> Response.ok(dashboard).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+}
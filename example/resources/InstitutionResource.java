@@ -1,6 +1,7 @@
 package com.example.resources;
 
 import com.example.entity.Institution;
+import com.example.models.Granularity;
 import com.example.service.InstitutionService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +11,7 @@ import javax.inject.Singleton;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Date;
 import java.util.List;
 
 @Path("/institutions")
@@ -37,6 +39,27 @@ public class InstitutionResource {
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
 
+    /**
+     * Successful donations to the institution's campaigns per bucket, read from the rollups.
+     * from and to are epoch milliseconds.
+     */
+    @GET
+    @Path("/{id}/timeseries")
+    public Response getInstitutionTimeseries(@QueryParam("shardKey") String shardKey,
+                                             @PathParam("id") Long id,
+                                             @QueryParam("granularity") @DefaultValue("DAY") String granularity,
+                                             @QueryParam("from") Long from,
+                                             @QueryParam("to") Long to) {
+        try {
+            return institutionService.getInstitutionTimeseries(shardKey, id, Granularity.parse(granularity),
+                            from == null ? null : new Date(from), to == null ? null : new Date(to))
+                    .map(points -> Response.ok(points).build())
+                    .orElse(Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+    }
+
     @POST
     public Response createInstitution(@QueryParam("shardKey") String shardKey,
                                       Institution institution) {
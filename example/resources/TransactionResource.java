@@ -1,7 +1,12 @@
 package com.example.resources;
 
+import com.example.api.Page;
 import com.example.entity.Transaction;
+import com.example.models.TransactionBatchResult;
+import com.example.models.TransactionSummary;
 import com.example.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 
@@ -10,6 +15,9 @@ import javax.inject.Singleton;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Path("/transactions")
@@ -20,12 +28,23 @@ import java.util.List;
 @Tag(name="Transaction Resource", description="APIs for managing transactions")
 public class TransactionResource {
 
+    private static final String JSON_LINES = "application/x-ndjson";
+    private static final int MULTI_STATUS = 207;
+
     private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
 
     @GET
-    public Response getAllTransactions(@QueryParam("shardKey") String shardKey) {
-        List<Transaction> transactions = transactionService.getAllTransactions(shardKey);
-        return Response.ok(transactions).build();
+    public Response getAllTransactions(@QueryParam("shardKey") String shardKey,
+                                       @QueryParam("pageToken") String pageToken,
+                                       @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Transaction> transactions = transactionService.getAllTransactions(shardKey);
+            return Response.ok(transactions).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Transaction> transactions = transactionService.getAllTransactions(shardKey, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(transactions, pageSize, Transaction::getTransactionId)).build();
     }
 
     @GET
@@ -37,6 +56,15 @@ public class TransactionResource {
                 .orElse(Response.status(Response.Status.NOT_FOUND).build());
     }
 
+    @GET
+    @Path("/gateway/{gatewayTransactionId}")
+    public Response getTransactionByGatewayTransactionId(@QueryParam("shardKey") String shardKey,
+                                                         @PathParam("gatewayTransactionId") String gatewayTransactionId) {
+        return transactionService.getTransactionByGatewayTransactionId(shardKey, gatewayTransactionId)
+                .map(transaction -> Response.ok(transaction).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+
     @POST
     public Response createTransaction(@QueryParam("shardKey") String shardKey,
                                       Transaction transaction) {
@@ -44,12 +72,35 @@ public class TransactionResource {
         return Response.status(Response.Status.CREATED).build();
     }
 
+    /**
+     * Record a batch of transactions. Answers 201 when every row was created or already recorded, and
+     * 207 with the outcome of each row when some shards failed to record theirs.
+     */
+    @POST
+    @Path("/batch")
+    public Response createTransactions(@QueryParam("shardKey") String shardKey,
+                                       List<Transaction> transactions) {
+        TransactionBatchResult result;
+        try {
+            result = transactionService.createTransactions(shardKey, transactions);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
+        return Response.status(result.isComplete() ? Response.Status.CREATED.getStatusCode() : MULTI_STATUS)
+                .entity(result)
+                .build();
+    }
+
     @PUT
     @Path("/{transactionId}")
     public Response updateTransaction(@QueryParam("shardKey") String shardKey,
                                       @PathParam("transactionId") String transactionId,
                                       Transaction transaction) {
-        transactionService.updateTransaction(shardKey, transactionId, transaction);
+        try {
+            transactionService.updateTransaction(shardKey, transactionId, transaction);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e.getMessage(), Response.Status.BAD_REQUEST);
+        }
         return Response.ok().build();
     }
 
@@ -64,24 +115,72 @@ public class TransactionResource {
     @GET
     @Path("/donor/{donorId}")
     public Response getTransactionsByDonorId(@QueryParam("shardKey") String shardKey,
-                                             @PathParam("donorId") Long donorId) {
-        List<Transaction> transactions = transactionService.getTransactionsByDonorId(shardKey, donorId);
-        return Response.ok(transactions).build();
+                                             @PathParam("donorId") Long donorId,
+                                             @QueryParam("pageToken") String pageToken,
+                                             @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<TransactionSummary> transactions = transactionService.getTransactionSummariesByDonorId(shardKey, donorId);
+            return Response.ok(transactions).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<TransactionSummary> transactions = transactionService.getTransactionSummariesByDonorId(shardKey, donorId,
+                Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(transactions, pageSize, TransactionSummary::getTransactionId)).build();
     }
 
     @GET
     @Path("/campaign/{campaignId}")
     public Response getTransactionsByCampaignId(@QueryParam("shardKey") String shardKey,
-                                                @PathParam("campaignId") Long campaignId) {
-        List<Transaction> transactions = transactionService.getTransactionsByCampaignId(shardKey, campaignId);
-        return Response.ok(transactions).build();
+                                                @PathParam("campaignId") Long campaignId,
+                                                @QueryParam("pageToken") String pageToken,
+                                                @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Transaction> transactions = transactionService.getTransactionsByCampaignId(shardKey, campaignId);
+            return Response.ok(transactions).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Transaction> transactions = transactionService.getTransactionsByCampaignId(shardKey, campaignId, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(transactions, pageSize, Transaction::getTransactionId)).build();
+    }
+
+    /**
+     * Export every transaction of a campaign as JSON Lines, streamed straight from the database cursor
+     */
+    @GET
+    @Path("/campaign/{campaignId}/export")
+    @Produces(JSON_LINES)
+    public Response exportTransactionsByCampaignId(@QueryParam("shardKey") String shardKey,
+                                                   @PathParam("campaignId") Long campaignId) {
+        StreamingOutput output = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                transactionService.exportTransactionsByCampaignId(shardKey, campaignId, transaction -> {
+                    try {
+                        writer.write(transaction);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return Response.ok(output)
+                .header("Content-Disposition", "attachment; filename=\"campaign_" + campaignId + "_transactions.jsonl\"")
+                .build();
     }
 
     @GET
     @Path("/status/{status}")
     public Response getTransactionsByStatus(@QueryParam("shardKey") String shardKey,
-                                            @PathParam("status") String status) {
-        List<Transaction> transactions = transactionService.getTransactionsByStatus(shardKey, status);
-        return Response.ok(transactions).build();
+                                            @PathParam("status") String status,
+                                            @QueryParam("pageToken") String pageToken,
+                                            @QueryParam("limit") Integer limit) {
+        if (pageToken == null && limit == null) {
+            List<Transaction> transactions = transactionService.getTransactionsByStatus(shardKey, status);
+            return Response.ok(transactions).build();
+        }
+        int pageSize = Page.limit(limit);
+        List<Transaction> transactions = transactionService.getTransactionsByStatus(shardKey, status, Page.afterId(pageToken), pageSize);
+        return Response.ok(Page.of(transactions, pageSize, Transaction::getTransactionId)).build();
     }
 }
@@ -0,0 +1,30 @@
+package com.example.resources;
+
+import com.example.service.UploadJobService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/uploads")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+@Tag(name="Upload Resource", description="APIs for tracking asynchronous uploads")
+public class UploadResource {
+
+    private final UploadJobService uploadJobService;
+
+    @GET
+    @Path("/{jobId}")
+    public Response getUploadJob(@PathParam("jobId") String jobId) {
+        return uploadJobService.getJob(jobId)
+                .map(job -> Response.ok(job).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.service;
+
+import com.example.dao.CampaignStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps an in-memory campaign index in step with the campaigns of every shard, reading only the columns
+ * the index needs as projection type beans.
+ *
+ * The first sync and every {@link #FULL_SYNC_EVERY}th after it scan every campaign and drop indexed
+ * campaigns that no longer exist. The syncs in between only read campaigns updated since the previous
+ * sync started, which picks up writes made through other instances without reading unchanged rows.
+ */
+public class CampaignChangeFeed<R> {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int FULL_SYNC_EVERY = 12;
+    // Update times come from the database clock, so changes are read from a little before the previous sync
+    private static final Duration CLOCK_SKEW_MARGIN = Duration.ofMinutes(1);
+
+    private final CampaignStore campaignStore;
+    private final List<String> properties;
+    private final Class<R> projectionType;
+    private final Function<R, Long> idExtractor;
+    private final Consumer<R> indexer;
+    private final Consumer<Long> remover;
+    private final Supplier<Set<Long>> indexedIds;
+    private Instant lastSync;
+    private int syncs;
+
+    public CampaignChangeFeed(CampaignStore campaignStore, List<String> properties, Class<R> projectionType,
+                              Function<R, Long> idExtractor, Consumer<R> indexer, Consumer<Long> remover,
+                              Supplier<Set<Long>> indexedIds) {
+        this.campaignStore = campaignStore;
+        this.properties = properties;
+        this.projectionType = projectionType;
+        this.idExtractor = idExtractor;
+        this.indexer = indexer;
+        this.remover = remover;
+        this.indexedIds = indexedIds;
+    }
+
+    /**
+     * Index the campaigns changed since the previous sync, or every campaign on a full sync.
+     * Returns the number of campaigns read.
+     */
+    public synchronized int sync() {
+        Instant started = Instant.now();
+        boolean full = lastSync == null || syncs % FULL_SYNC_EVERY == 0;
+        Date updatedSince = full ? null : Date.from(lastSync.minus(CLOCK_SKEW_MARGIN));
+        // Campaigns indexed while the scan runs are not in this snapshot and so are never dropped by it
+        Set<Long> stale = full ? new HashSet<>(indexedIds.get()) : new HashSet<>();
+        int read = 0;
+        Long afterId = null;
+        List<R> page;
+        do {
+            page = campaignStore.scanPage(properties, projectionType, idExtractor, updatedSince, afterId, PAGE_SIZE);
+            for (R campaign : page) {
+                indexer.accept(campaign);
+                afterId = idExtractor.apply(campaign);
+                stale.remove(afterId);
+            }
+            read += page.size();
+        } while (page.size() == PAGE_SIZE);
+        stale.forEach(remover);
+        lastSync = started;
+        syncs++;
+        return read;
+    }
+}
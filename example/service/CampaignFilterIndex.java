@@ -0,0 +1,294 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.dao.CampaignStore;
+import com.example.entity.Campaign;
+import com.example.models.CampaignSummary;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of campaign attributes, with one set of campaign ids per field value.
+ *
+ * Filters are answered by OR-ing the sets of the values requested for a field and AND-ing across fields into
+ * a bitmap, which iterates in id order and keeps keyset paging over results cheap. Campaign ids from all
+ * shards interleave into a dense range, so the live, approved and fulfilled values, each holding a large share
+ * of all campaigns, are plain bitmaps. Institution, beneficiary and category values each hold few campaigns
+ * spread over the whole range, so they are sorted id arrays, sized by the campaigns they hold rather than by
+ * the highest id. The index is loaded on start, updated from
+ * campaign writes on this instance and synced periodically from campaign summaries to pick up writes from
+ * other instances.
+ */
+@Slf4j
+@Singleton
+public class CampaignFilterIndex implements Managed {
+
+    public static final String LIVE = "live";
+    public static final String APPROVED = "approved";
+    public static final String FULFILLED = "fulfilled";
+    public static final String INSTITUTION = "institution";
+    public static final String BENEFICIARY = "beneficiary";
+    public static final String CATEGORY = "category";
+    private static final Set<String> BITMAP_FIELDS = Set.of(LIVE, APPROVED, FULFILLED);
+    private static final Set<String> ID_LIST_FIELDS = Set.of(INSTITUTION, BENEFICIARY, CATEGORY);
+    private static final long REFRESH_INTERVAL_MINUTES = 5;
+
+    private final Map<String, BitSet> bitmaps = new HashMap<>();
+    private final Map<String, IdList> idLists = new HashMap<>();
+    private final Map<Long, List<String>> indexedKeys = new HashMap<>();
+    private final BitSet all = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CampaignChangeFeed<CampaignSummary> changeFeed;
+    private ScheduledExecutorService refresher;
+
+    @Inject
+    public CampaignFilterIndex(CampaignStore campaignStore, MetricRegistry metricRegistry) {
+        this.changeFeed = new CampaignChangeFeed<>(campaignStore, CampaignStore.SUMMARY_PROPERTIES,
+                CampaignSummary.class, CampaignSummary::getId, this::index, this::remove, this::indexedIds);
+        metricRegistry.register(MetricRegistry.name(CampaignFilterIndex.class, "campaigns"),
+                (Gauge<Integer>) this::size);
+    }
+
+    @Override
+    public void start() {
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filter-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, REFRESH_INTERVAL_MINUTES, REFRESH_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Ids of campaigns matching every field filter, where a field matches any of its values.
+     * Ids are ascending and start after afterId when it is set. Unknown fields are rejected.
+     */
+    public List<Long> query(Map<String, ? extends Collection<String>> filters, Long afterId, int limit) {
+        for (String field : filters.keySet()) {
+            if (!BITMAP_FIELDS.contains(field) && !ID_LIST_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown campaign filter: " + field);
+            }
+        }
+        if (afterId != null && afterId >= Integer.MAX_VALUE) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) all.clone();
+            for (Map.Entry<String, ? extends Collection<String>> filter : filters.entrySet()) {
+                BitSet anyValue = new BitSet();
+                for (String value : filter.getValue()) {
+                    String key = key(filter.getKey(), value);
+                    if (BITMAP_FIELDS.contains(filter.getKey())) {
+                        BitSet bitmap = bitmaps.get(key);
+                        if (bitmap != null) {
+                            anyValue.or(bitmap);
+                        }
+                    } else {
+                        IdList idList = idLists.get(key);
+                        if (idList != null) {
+                            idList.addTo(anyValue);
+                        }
+                    }
+                }
+                matches.and(anyValue);
+            }
+            List<Long> ids = new ArrayList<>(limit);
+            int from = afterId == null ? 0 : Math.toIntExact(afterId + 1);
+            for (int id = matches.nextSetBit(from); id >= 0 && ids.size() < limit; id = matches.nextSetBit(id + 1)) {
+                ids.add((long) id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index the current state of a campaign, replacing what was indexed for it before
+     */
+    public void index(Campaign campaign) {
+        index(campaign.getId(), campaign.getIsLive(), campaign.getIsApproved(), campaign.getIsFulfilled(),
+                campaign.getInstitutionId(), campaign.getBeneficiaryId(), campaign.getCategory());
+    }
+
+    private void index(CampaignSummary campaign) {
+        index(campaign.getId(), campaign.getIsLive(), campaign.getIsApproved(), campaign.getIsFulfilled(),
+                campaign.getInstitutionId(), campaign.getBeneficiaryId(), campaign.getCategory());
+    }
+
+    private void index(Long id, Boolean live, Boolean approved, Boolean fulfilled, Long institutionId,
+                       Long beneficiaryId, String category) {
+        if (id > Integer.MAX_VALUE) {
+            log.warn("Campaign {} is beyond the bitmap index range and cannot be filtered", id);
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(key(LIVE, String.valueOf(Boolean.TRUE.equals(live))));
+        keys.add(key(APPROVED, String.valueOf(Boolean.TRUE.equals(approved))));
+        keys.add(key(FULFILLED, String.valueOf(Boolean.TRUE.equals(fulfilled))));
+        keys.add(key(INSTITUTION, String.valueOf(institutionId)));
+        keys.add(key(BENEFICIARY, String.valueOf(beneficiaryId)));
+        if (category != null) {
+            keys.add(key(CATEGORY, category));
+        }
+        int bit = id.intValue();
+        lock.writeLock().lock();
+        try {
+            removeCampaign(id);
+            for (String key : keys) {
+                if (isBitmapKey(key)) {
+                    bitmaps.computeIfAbsent(key, k -> new BitSet()).set(bit);
+                } else {
+                    idLists.computeIfAbsent(key, k -> new IdList()).add(bit);
+                }
+            }
+            indexedKeys.put(id, keys);
+            all.set(bit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long campaignId) {
+        lock.writeLock().lock();
+        try {
+            removeCampaign(campaignId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must hold the write lock
+    private void removeCampaign(Long campaignId) {
+        List<String> keys = indexedKeys.remove(campaignId);
+        if (keys == null) {
+            return;
+        }
+        int bit = campaignId.intValue();
+        for (String key : keys) {
+            if (isBitmapKey(key)) {
+                BitSet bitmap = bitmaps.get(key);
+                bitmap.clear(bit);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            } else {
+                IdList idList = idLists.get(key);
+                idList.remove(bit);
+                if (idList.isEmpty()) {
+                    idLists.remove(key);
+                }
+            }
+        }
+        all.clear(bit);
+    }
+
+    private static String key(String field, String value) {
+        return field + ":" + value.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBitmapKey(String key) {
+        return BITMAP_FIELDS.contains(key.substring(0, key.indexOf(':')));
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return indexedKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> indexedIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(indexedKeys.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reload() {
+        try {
+            int read = changeFeed.sync();
+            log.info("Campaign filter index synced {} campaigns, {} indexed", read, size());
+        } catch (Exception e) {
+            log.error("Failed to reload campaign filter index", e);
+        }
+    }
+
+    /**
+     * Ascending campaign ids in an int array that grows as needed. Campaigns are loaded and mostly created in
+     * id order, so adds are usually appends.
+     */
+    private static class IdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        private void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            if (size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void addTo(BitSet bitmap) {
+            for (int i = 0; i < size; i++) {
+                bitmap.set(ids[i]);
+            }
+        }
+    }
+}
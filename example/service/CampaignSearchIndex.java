@@ -0,0 +1,269 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.dao.CampaignStore;
+import com.example.entity.Campaign;
+import io.dropwizard.lifecycle.Managed;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over campaign title, description and category, ranked with BM25.
+ *
+ * Title and category terms count several times towards a campaign's term frequencies, so matches there
+ * outrank matches in the description. The index is loaded from every shard on start, updated from
+ * campaign writes on this instance and synced periodically to pick up writes from other instances.
+ */
+@Slf4j
+@Singleton
+public class CampaignSearchIndex implements Managed {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 3;
+    private static final int CATEGORY_BOOST = 2;
+    private static final long REFRESH_INTERVAL_MINUTES = 5;
+    private static final List<String> TEXT_PROPERTIES = List.of("id", "title", "description", "category");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "in", "is", "it", "of", "on", "or", "that", "the", "to", "with");
+
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Timer searchTimer;
+    private final CampaignChangeFeed<CampaignText> changeFeed;
+    private long totalLength;
+    private ScheduledExecutorService refresher;
+
+    @Inject
+    public CampaignSearchIndex(CampaignStore campaignStore, MetricRegistry metricRegistry) {
+        this.changeFeed = new CampaignChangeFeed<>(campaignStore, TEXT_PROPERTIES, CampaignText.class,
+                CampaignText::getId, this::index, this::remove, this::indexedIds);
+        this.searchTimer = metricRegistry.timer(MetricRegistry.name(CampaignSearchIndex.class, "search"));
+        metricRegistry.register(MetricRegistry.name(CampaignSearchIndex.class, "documents"),
+                (Gauge<Integer>) this::size);
+        metricRegistry.register(MetricRegistry.name(CampaignSearchIndex.class, "terms"),
+                (Gauge<Integer>) this::termCount);
+    }
+
+    @Override
+    public void start() {
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, REFRESH_INTERVAL_MINUTES, REFRESH_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Ids of the campaigns best matching the query, highest BM25 score first
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        try (Timer.Context ignored = searchTimer.time()) {
+            Map<Long, Double> scores = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                if (documents.isEmpty()) {
+                    return List.of();
+                }
+                double averageLength = (double) totalLength / documents.size();
+                for (String term : terms) {
+                    Map<Long, Integer> termPostings = postings.get(term);
+                    if (termPostings == null) {
+                        continue;
+                    }
+                    double idf = Math.log(1 + (documents.size() - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                    for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                        int frequency = posting.getValue();
+                        int length = documentLengths.get(posting.getKey());
+                        double score = idf * frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * length / averageLength));
+                        scores.merge(posting.getKey(), score, Double::sum);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return top(scores, limit);
+        }
+    }
+
+    /**
+     * Index the current state of a campaign, replacing what was indexed for it before
+     */
+    public void index(Campaign campaign) {
+        index(new CampaignText(campaign.getId(), campaign.getTitle(), campaign.getDescription(), campaign.getCategory()));
+    }
+
+    private void index(CampaignText campaign) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, campaign.getTitle(), TITLE_BOOST);
+        addTerms(frequencies, campaign.getDescription(), 1);
+        addTerms(frequencies, campaign.getCategory(), CATEGORY_BOOST);
+        lock.writeLock().lock();
+        try {
+            removeDocument(campaign.getId());
+            int length = documentLength(frequencies);
+            documents.put(campaign.getId(), frequencies);
+            documentLengths.put(campaign.getId(), length);
+            totalLength += length;
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(campaign.getId(), frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long campaignId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(campaignId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Must hold the write lock
+    private void removeDocument(Long campaignId) {
+        Map<String, Integer> previous = documents.remove(campaignId);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= documentLengths.remove(campaignId);
+        for (String term : previous.keySet()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            termPostings.remove(campaignId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private static int documentLength(Map<String, Integer> frequencies) {
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+        return length;
+    }
+
+    private static List<Long> top(Map<Long, Double> scores, int limit) {
+        Comparator<Map.Entry<Long, Double>> byScore = Map.Entry.comparingByValue();
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(byScore);
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Long> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(0, best.poll().getKey());
+        }
+        return ids;
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> indexedIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reload() {
+        try {
+            int read = changeFeed.sync();
+            log.info("Campaign search index synced {} campaigns, {} indexed", read, size());
+        } catch (Exception e) {
+            log.error("Failed to reload campaign search index", e);
+        }
+    }
+
+    /**
+     * The searched columns of a campaign
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CampaignText {
+        private Long id;
+        private String title;
+        private String description;
+        private String category;
+    }
+}
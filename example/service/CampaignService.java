@@ -1,16 +1,34 @@
 package com.example.service;
 
 import com.example.entity.Campaign;
+import com.example.entity.CampaignStats;
+import com.example.models.CampaignSummary;
+import com.example.models.DonorTotal;
+import com.example.models.Granularity;
+import com.example.models.TimeseriesPoint;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CampaignService {
 
     List<Campaign> getAllCampaigns(String shardKey);
 
+    List<Campaign> getAllCampaigns(String shardKey, Long afterId, int limit);
+
     Optional<Campaign> getCampaignById(String shardKey, Long id);
 
+    Optional<CampaignStats> getCampaignStats(String shardKey, Long id);
+
+    Optional<List<DonorTotal>> getTopDonors(String shardKey, Long id, int limit);
+
+    Optional<List<TimeseriesPoint>> getCampaignTimeseries(String shardKey, Long id, Granularity granularity,
+                                                          Date from, Date to);
+
+    List<Campaign> getCampaignsByIds(String shardKey, List<Long> ids);
+
     void createCampaign(String shardKey, Campaign campaign);
 
     void updateCampaign(String shardKey, Long id, Campaign campaign);
@@ -19,13 +37,34 @@ public interface CampaignService {
 
     List<Campaign> getCampaignsByBeneficiaryId(String shardKey, Long beneficiaryId);
 
+    List<Campaign> getCampaignsByBeneficiaryId(String shardKey, Long beneficiaryId, Long afterId, int limit);
+
     List<Campaign> getCampaignsByInstitutionId(String shardKey, Long institutionId);
 
-    List<Campaign> getLiveCampaigns(String shardKey);
+    List<CampaignSummary> getCampaignSummariesByInstitutionId(String shardKey, Long institutionId);
+
+    List<CampaignSummary> getCampaignSummariesByInstitutionId(String shardKey, Long institutionId, Long afterId, int limit);
+
+    List<CampaignSummary> getLiveCampaignSummaries(String shardKey);
+
+    List<CampaignSummary> getLiveCampaignSummaries(String shardKey, Long afterId, int limit);
+
+    List<CampaignSummary> getRankedLiveCampaigns(String afterCursor, int limit);
+
+    List<Campaign> searchCampaigns(String shardKey, String query, int limit);
+
+    /**
+     * A page of ids of campaigns matching the filters, ascending after afterId
+     */
+    List<Long> queryCampaignIds(Map<String, List<String>> filters, Long afterId, int limit);
 
     List<Campaign> getApprovedCampaigns(String shardKey);
 
+    List<Campaign> getApprovedCampaigns(String shardKey, Long afterId, int limit);
+
     List<Campaign> getFulfilledCampaigns(String shardKey);
 
+    List<Campaign> getFulfilledCampaigns(String shardKey, Long afterId, int limit);
+
     void updateReportFileId(String shardKey, Long id, String reportFileId);
 }
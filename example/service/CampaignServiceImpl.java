@@ -1,34 +1,104 @@
 package com.example.service;
 
+import com.example.dao.CampaignStatsStore;
 import com.example.dao.CampaignStore;
+import com.example.dao.DonationRollupStore;
 import com.example.entity.Campaign;
+import com.example.entity.CampaignStats;
+import com.example.models.CampaignSummary;
+import com.example.models.DonorTotal;
+import com.example.models.Granularity;
+import com.example.models.TimeseriesPoint;
 import lombok.RequiredArgsConstructor;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class CampaignServiceImpl implements CampaignService {
 
+    private static final int MAX_IDS_PER_REQUEST = 500;
+
     private final CampaignStore campaignStore;
+    private final CampaignStatsStore campaignStatsStore;
+    private final DonationRollupStore donationRollupStore;
+    private final FundingAccumulator fundingAccumulator;
+    private final DonorLeaderboard donorLeaderboard;
+    private final LiveCampaignFeed liveCampaignFeed;
+    private final CampaignSearchIndex campaignSearchIndex;
+    private final CampaignFilterIndex campaignFilterIndex;
 
     @Override
     public List<Campaign> getAllCampaigns(String shardKey) {
         return campaignStore.getAll(shardKey);
     }
 
+    @Override
+    public List<Campaign> getAllCampaigns(String shardKey, Long afterId, int limit) {
+        return campaignStore.getAll(shardKey, afterId, limit);
+    }
+
     @Override
     public Optional<Campaign> getCampaignById(String shardKey, Long id) {
-        return campaignStore.getById(shardKey, id);
+        // Include donations that have not been written behind yet
+        return campaignStore.getById(shardKey, id).map(fundingAccumulator::merge);
+    }
+
+    @Override
+    public Optional<CampaignStats> getCampaignStats(String shardKey, Long id) {
+        if (!campaignStore.exists(shardKey, id)) {
+            return Optional.empty();
+        }
+        // Campaigns without donations have no stats row yet
+        return Optional.of(campaignStatsStore.get(id).orElseGet(() -> CampaignStats.empty(id)));
+    }
+
+    @Override
+    public Optional<List<DonorTotal>> getTopDonors(String shardKey, Long id, int limit) {
+        if (limit < 1 || limit > DonorLeaderboard.TOP_K) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + DonorLeaderboard.TOP_K);
+        }
+        if (!campaignStore.exists(shardKey, id)) {
+            return Optional.empty();
+        }
+        return Optional.of(donorLeaderboard.getTopDonors(id, limit));
+    }
+
+    @Override
+    public Optional<List<TimeseriesPoint>> getCampaignTimeseries(String shardKey, Long id, Granularity granularity,
+                                                                 Date from, Date to) {
+        if (!campaignStore.exists(shardKey, id)) {
+            return Optional.empty();
+        }
+        return Optional.of(donationRollupStore.getCampaignTimeseries(id, granularity, from, to));
+    }
+
+    @Override
+    public List<Campaign> getCampaignsByIds(String shardKey, List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one campaign ID is required");
+        }
+        if (ids.size() > MAX_IDS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_IDS_PER_REQUEST + " campaign IDs can be requested at once");
+        }
+        return campaignStore.getByIds(shardKey, ids).stream()
+                .map(fundingAccumulator::merge)
+                .collect(Collectors.toList());
     }
 
     @Override
     public void createCampaign(String shardKey, Campaign campaign) {
 
         campaignStore.create(shardKey, campaign);
+        liveCampaignFeed.update(campaign);
+        campaignSearchIndex.index(campaign);
+        campaignFilterIndex.index(campaign);
     }
 
     @Override
@@ -37,6 +107,7 @@ public class CampaignServiceImpl implements CampaignService {
             throw new RuntimeException("Campaign not found: " + id);
         }
         campaignStore.update(shardKey, id, campaign);
+        refreshIndexes(shardKey, id);
     }
 
     @Override
@@ -49,14 +120,58 @@ public class CampaignServiceImpl implements CampaignService {
         return campaignStore.getByBeneficiaryId(shardKey, beneficiaryId);
     }
 
+    @Override
+    public List<Campaign> getCampaignsByBeneficiaryId(String shardKey, Long beneficiaryId, Long afterId, int limit) {
+        return campaignStore.getByBeneficiaryId(shardKey, beneficiaryId, afterId, limit);
+    }
+
     @Override
     public List<Campaign> getCampaignsByInstitutionId(String shardKey, Long institutionId) {
         return campaignStore.getByInstitutionId(shardKey, institutionId);
     }
 
     @Override
-    public List<Campaign> getLiveCampaigns(String shardKey) {
-        return campaignStore.getLiveCampaigns(shardKey);
+    public List<CampaignSummary> getCampaignSummariesByInstitutionId(String shardKey, Long institutionId) {
+        return campaignStore.getSummariesByInstitutionId(shardKey, institutionId);
+    }
+
+    @Override
+    public List<CampaignSummary> getCampaignSummariesByInstitutionId(String shardKey, Long institutionId, Long afterId, int limit) {
+        return campaignStore.getSummariesByInstitutionId(shardKey, institutionId, afterId, limit);
+    }
+
+    @Override
+    public List<CampaignSummary> getLiveCampaignSummaries(String shardKey) {
+        return campaignStore.getLiveCampaignSummaries(shardKey);
+    }
+
+    @Override
+    public List<CampaignSummary> getLiveCampaignSummaries(String shardKey, Long afterId, int limit) {
+        return campaignStore.getLiveCampaignSummaries(shardKey, afterId, limit);
+    }
+
+    @Override
+    public List<CampaignSummary> getRankedLiveCampaigns(String afterCursor, int limit) {
+        return liveCampaignFeed.page(afterCursor, limit);
+    }
+
+    @Override
+    public List<Campaign> searchCampaigns(String shardKey, String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        List<Long> ids = campaignSearchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return campaignStore.getByIds(shardKey, ids).stream()
+                .map(fundingAccumulator::merge)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> queryCampaignIds(Map<String, List<String>> filters, Long afterId, int limit) {
+        return campaignFilterIndex.query(filters, afterId, limit);
     }
 
     @Override
@@ -64,16 +179,40 @@ public class CampaignServiceImpl implements CampaignService {
         return campaignStore.getApprovedCampaigns(shardKey);
     }
 
+    @Override
+    public List<Campaign> getApprovedCampaigns(String shardKey, Long afterId, int limit) {
+        return campaignStore.getApprovedCampaigns(shardKey, afterId, limit);
+    }
+
     @Override
     public List<Campaign> getFulfilledCampaigns(String shardKey) {
         return campaignStore.getFulfilledCampaigns(shardKey);
     }
 
+    @Override
+    public List<Campaign> getFulfilledCampaigns(String shardKey, Long afterId, int limit) {
+        return campaignStore.getFulfilledCampaigns(shardKey, afterId, limit);
+    }
+
     @Override
     public void updateReportFileId(String shardKey, Long id, String reportFileId) {
         if (!campaignStore.exists(shardKey, id)) {
             throw new RuntimeException("Campaign not found: " + id);
         }
         campaignStore.updateReportFileId(shardKey, id, reportFileId);
+        refreshIndexes(shardKey, id);
+    }
+
+    private void refreshIndexes(String shardKey, Long id) {
+        Optional<Campaign> campaign = campaignStore.getById(shardKey, id);
+        if (campaign.isPresent()) {
+            liveCampaignFeed.update(campaign.get());
+            campaignSearchIndex.index(campaign.get());
+            campaignFilterIndex.index(campaign.get());
+        } else {
+            liveCampaignFeed.remove(id);
+            campaignSearchIndex.remove(id);
+            campaignFilterIndex.remove(id);
+        }
     }
 }
@@ -0,0 +1,12 @@
+package com.example.service;
+
+import com.example.models.Dashboard;
+
+import java.util.Optional;
+
+public interface DashboardService {
+
+    Dashboard getDashboard(String shardKey);
+
+    Optional<Dashboard> getInstitutionDashboard(String shardKey, Long institutionId);
+}
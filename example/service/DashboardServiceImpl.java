@@ -0,0 +1,142 @@
+package com.example.service;
+
+import com.example.MyDropwizardConfiguration;
+import com.example.config.DashboardConfig;
+import com.example.entity.Campaign;
+import com.example.entity.Institution;
+import com.example.entity.Transaction;
+import com.example.models.Dashboard;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Builds the dashboards by loading every section concurrently on a dedicated pool, so a page costs one
+ * round trip bounded by its slowest section. Sections that fail or exceed the section timeout are
+ * reported in failedSections and the rest of the dashboard is still returned.
+ */
+@Slf4j
+@Singleton
+public class DashboardServiceImpl implements DashboardService, Managed {
+
+    private final CampaignService campaignService;
+    private final TransactionService transactionService;
+    private final InstitutionService institutionService;
+    private final DashboardConfig config;
+    private final ExecutorService executor;
+
+    @Inject
+    public DashboardServiceImpl(CampaignService campaignService,
+                                TransactionService transactionService,
+                                InstitutionService institutionService,
+                                MyDropwizardConfiguration configuration) {
+        this.campaignService = campaignService;
+        this.transactionService = transactionService;
+        this.institutionService = institutionService;
+        this.config = configuration.getDashboard();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void start() {
+        // The pool is created with the service
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Dashboard getDashboard(String shardKey) {
+        List<String> failedSections = new CopyOnWriteArrayList<>();
+        CompletableFuture<List<Campaign>> campaigns = section("campaigns",
+                () -> campaignService.getAllCampaigns(shardKey), failedSections);
+        CompletableFuture<List<Campaign>> approvedCampaigns = section("approvedCampaigns",
+                () -> campaignService.getApprovedCampaigns(shardKey), failedSections);
+        CompletableFuture<List<Transaction>> transactions = section("transactions",
+                () -> transactionService.getAllTransactions(shardKey), failedSections);
+        CompletableFuture<List<Institution>> institutions = section("institutions",
+                () -> institutionService.getAllInstitutions(shardKey), failedSections);
+        CompletableFuture.allOf(campaigns, approvedCampaigns, transactions, institutions).join();
+
+        return Dashboard.builder()
+                .campaigns(campaigns.join())
+                .approvedCampaigns(approvedCampaigns.join())
+                .transactions(transactions.join())
+                .institutions(institutions.join())
+                .failedSections(failed(failedSections))
+                .build();
+    }
+
+    @Override
+    public Optional<Dashboard> getInstitutionDashboard(String shardKey, Long institutionId) {
+        List<String> failedSections = new CopyOnWriteArrayList<>();
+        CompletableFuture<Optional<Institution>> institution = section("institution",
+                () -> institutionService.getInstitutionById(shardKey, institutionId), failedSections);
+        CompletableFuture<List<Campaign>> campaigns = section("campaigns",
+                () -> campaignService.getCampaignsByInstitutionId(shardKey, institutionId), failedSections);
+        CompletableFuture.allOf(institution, campaigns).join();
+
+        Optional<Institution> loadedInstitution = institution.join();
+        if (loadedInstitution != null && !loadedInstitution.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(Dashboard.builder()
+                .institution(loadedInstitution == null ? null : loadedInstitution.get())
+                .campaigns(campaigns.join())
+                .failedSections(failed(failedSections))
+                .build());
+    }
+
+    /**
+     * Completes with null, recording the section as failed, on error or timeout. A section that times out
+     * has its loader cancelled, so it is dropped from the queue or interrupted instead of holding a pool thread.
+     */
+    private <T> CompletableFuture<T> section(String name, Supplier<T> loader, List<String> failedSections) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(loader.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result
+                .orTimeout(config.getSectionTimeoutMs(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    task.cancel(true);
+                    log.warn("Dashboard section {} failed", name, e);
+                    failedSections.add(name);
+                    return null;
+                });
+    }
+
+    private static List<String> failed(List<String> failedSections) {
+        if (failedSections.isEmpty()) {
+            return null;
+        }
+        List<String> sorted = new ArrayList<>(failedSections);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
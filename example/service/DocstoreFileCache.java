@@ -0,0 +1,332 @@
+package com.example.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.FileCacheConfig;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Striped;
+import io.dropwizard.lifecycle.Managed;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Content-addressed disk cache of Docstore files.
+ *
+ * Content is stored once per SHA-256 digest under blobs/, and each cached file ID points at its digest
+ * and file name through a small file under ids/, so the same content uploaded under several IDs is kept once.
+ * Downloads land in tmp/ and are moved into place atomically once complete, so readers never see a
+ * partial file. Least recently used content is evicted once the cache exceeds its size budget. Files are
+ * opened under the same lock eviction takes, so a file handed out stays readable until closed even if it
+ * is evicted meanwhile.
+ */
+@Slf4j
+@Singleton
+public class DocstoreFileCache implements Managed {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DosctoreService dosctoreService;
+    private final long maxSizeBytes;
+    private final Path blobs;
+    private final Path ids;
+    private final Path tmp;
+    // Digest to content size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> digestsById = new HashMap<>();
+    private final Map<String, String> namesById = new HashMap<>();
+    private final Map<String, Set<String>> idsByDigest = new HashMap<>();
+    private final Striped<Lock> downloadLocks = Striped.lock(64);
+    private final Meter hits;
+    private final Meter misses;
+    private final Counter bytesSaved;
+    private long sizeBytes;
+
+    @Inject
+    public DocstoreFileCache(DosctoreService dosctoreService,
+                             MyDropwizardConfiguration configuration,
+                             MetricRegistry metricRegistry) {
+        FileCacheConfig config = configuration.getFileCache();
+        this.dosctoreService = dosctoreService;
+        this.maxSizeBytes = config.getMaxSizeMb() * 1024 * 1024;
+        Path root = Paths.get(config.getDirectory());
+        this.blobs = root.resolve("blobs");
+        this.ids = root.resolve("ids");
+        this.tmp = root.resolve("tmp");
+        this.hits = metricRegistry.meter(MetricRegistry.name(DocstoreFileCache.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(DocstoreFileCache.class, "misses"));
+        this.bytesSaved = metricRegistry.counter(MetricRegistry.name(DocstoreFileCache.class, "bytesSaved"));
+        metricRegistry.register(MetricRegistry.name(DocstoreFileCache.class, "hitRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        metricRegistry.register(MetricRegistry.name(DocstoreFileCache.class, "sizeBytes"),
+                (Gauge<Long>) this::size);
+    }
+
+    /**
+     * Rebuild the index from the cache directory, oldest content first, dropping leftovers of
+     * interrupted downloads and content no file ID points at
+     */
+    @Override
+    public void start() throws IOException {
+        Files.createDirectories(blobs);
+        Files.createDirectories(ids);
+        Files.createDirectories(tmp);
+        for (Path partial : list(tmp)) {
+            Files.deleteIfExists(partial);
+        }
+        List<Path> blobFiles = list(blobs);
+        blobFiles.sort(Comparator.comparing(DocstoreFileCache::lastModified));
+        synchronized (this) {
+            for (Path blob : blobFiles) {
+                long size = Files.size(blob);
+                entries.put(blob.getFileName().toString(), size);
+                sizeBytes += size;
+            }
+            for (Path idFile : list(ids)) {
+                List<String> lines = Files.readAllLines(idFile);
+                String digest = lines.isEmpty() ? null : lines.get(0);
+                if (digest != null && entries.containsKey(digest)) {
+                    link(URLDecoder.decode(idFile.getFileName().toString(), StandardCharsets.UTF_8), digest,
+                            lines.size() > 1 ? lines.get(1) : null);
+                } else {
+                    Files.deleteIfExists(idFile);
+                }
+            }
+            for (String digest : new ArrayList<>(entries.keySet())) {
+                if (!idsByDigest.containsKey(digest)) {
+                    remove(digest);
+                }
+            }
+            evict();
+        }
+        log.info("Docstore file cache loaded with {} files, {} bytes", entries.size(), sizeBytes);
+    }
+
+    @Override
+    public void stop() {
+        // Cached files are kept for the next start
+    }
+
+    /**
+     * The cached copy of a file opened for reading, downloading it from Docstore first on a miss.
+     * The caller closes it.
+     */
+    public CachedFile open(String fileId) throws IOException {
+        CachedFile cached = openCached(fileId);
+        if (cached != null) {
+            hits.mark();
+            return cached;
+        }
+        // Concurrent misses on the same file download it once
+        Lock lock = downloadLocks.get(fileId);
+        lock.lock();
+        try {
+            cached = openCached(fileId);
+            if (cached != null) {
+                hits.mark();
+                return cached;
+            }
+            misses.mark();
+            return download(fileId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record bytes of a file sent to a client. Only bytes served from content that was already cached count
+     * as saved, so revalidations and ranges count what they actually sent.
+     */
+    public void served(CachedFile file, long bytes) {
+        if (file.isCached()) {
+            bytesSaved.inc(bytes);
+        }
+    }
+
+    private synchronized CachedFile openCached(String fileId) throws IOException {
+        String digest = digestsById.get(fileId);
+        if (digest == null) {
+            return null;
+        }
+        Path blob = blobs.resolve(digest);
+        return new CachedFile(blob, digest, entries.get(digest), namesById.get(fileId), true,
+                FileChannel.open(blob, StandardOpenOption.READ));
+    }
+
+    private CachedFile download(String fileId) {
+        Path partial = null;
+        try {
+            String fileName = dosctoreService.getFileName(fileId);
+            partial = Files.createTempFile(tmp, "download_", null);
+            if (!dosctoreService.downloadFile(fileId, partial)) {
+                throw new RuntimeException("Docstore did not return file: " + fileId);
+            }
+            String digest = sha256(partial);
+            long size = Files.size(partial);
+            Path blob = blobs.resolve(digest);
+            Path idFile = ids.resolve(URLEncoder.encode(fileId, StandardCharsets.UTF_8));
+            synchronized (this) {
+                if (entries.containsKey(digest)) {
+                    // Same content is already cached under another file ID
+                    Files.delete(partial);
+                } else {
+                    Files.move(partial, blob, StandardCopyOption.ATOMIC_MOVE);
+                    entries.put(digest, size);
+                    sizeBytes += size;
+                }
+                writeAtomically(idFile, digest + "\n" + fileName);
+                link(fileId, digest, fileName);
+                FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ);
+                try {
+                    evict();
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+                return new CachedFile(blob, digest, size, fileName, false, channel);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to cache file: " + fileId, e);
+        } finally {
+            if (partial != null) {
+                try {
+                    Files.deleteIfExists(partial);
+                } catch (IOException e) {
+                    log.warn("Failed to delete partial download: {}", partial, e);
+                }
+            }
+        }
+    }
+
+    private void writeAtomically(Path target, String content) throws IOException {
+        Path partial = Files.createTempFile(tmp, "id_", null);
+        Files.writeString(partial, content);
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Must hold the monitor
+    private void link(String fileId, String digest, String fileName) {
+        digestsById.put(fileId, digest);
+        if (fileName != null) {
+            namesById.put(fileId, fileName);
+        }
+        idsByDigest.computeIfAbsent(digest, key -> new HashSet<>()).add(fileId);
+    }
+
+    // Must hold the monitor. The content just cached is the most recently used and is evicted last.
+    private void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxSizeBytes && entries.size() > 1 && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            drop(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Must hold the monitor
+    private void remove(String digest) throws IOException {
+        drop(digest, entries.remove(digest));
+    }
+
+    // Must hold the monitor, with the digest already out of entries
+    private void drop(String digest, long size) throws IOException {
+        sizeBytes -= size;
+        Set<String> fileIds = idsByDigest.remove(digest);
+        if (fileIds != null) {
+            for (String fileId : fileIds) {
+                digestsById.remove(fileId);
+                namesById.remove(fileId);
+                Files.deleteIfExists(ids.resolve(URLEncoder.encode(fileId, StandardCharsets.UTF_8)));
+            }
+        }
+        Files.deleteIfExists(blobs.resolve(digest));
+    }
+
+    private synchronized long size() {
+        return sizeBytes;
+    }
+
+    private static String sha256(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(paths::add);
+        }
+        return paths;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * An open file in the cache with the SHA-256 digest of its content and the name it was uploaded under.
+     * cached is false when the file was just downloaded.
+     */
+    @Value
+    public static class CachedFile implements Closeable {
+        Path path;
+        String sha256;
+        long size;
+        String fileName;
+        boolean cached;
+        FileChannel channel;
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.DonationEventConfig;
+import com.example.dao.CampaignStatsStore;
+import com.example.dao.DonationEventStore;
+import com.example.sharding.ShardKeyResolver;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies donation events to the campaign stats and donation rollups, draining every shard in batches each
+ * interval. Several instances can run it at once, since each batch only takes the events it could lock.
+ */
+@Slf4j
+@Singleton
+public class DonationEventApplier implements Managed {
+
+    private final DonationEventConfig config;
+    private final DonationEventStore donationEventStore;
+    private final CampaignStatsStore campaignStatsStore;
+    private final ShardKeyResolver shardKeyResolver;
+    private final Timer runTimer;
+    private final Meter applied;
+    private ScheduledExecutorService scheduler;
+
+    @Inject
+    public DonationEventApplier(MyDropwizardConfiguration configuration,
+                                DonationEventStore donationEventStore,
+                                CampaignStatsStore campaignStatsStore,
+                                ShardKeyResolver shardKeyResolver,
+                                MetricRegistry metricRegistry) {
+        this.config = configuration.getDonationEvents();
+        this.donationEventStore = donationEventStore;
+        this.campaignStatsStore = campaignStatsStore;
+        this.shardKeyResolver = shardKeyResolver;
+        this.runTimer = metricRegistry.timer(MetricRegistry.name(DonationEventApplier.class, "run"));
+        this.applied = metricRegistry.meter(MetricRegistry.name(DonationEventApplier.class, "applied"));
+    }
+
+    @Override
+    public void start() {
+        if (config.isBackfillOnStart()) {
+            log.info("Backfilling campaign stats and donors from transactions");
+            campaignStatsStore.backfill();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "donation-event-applier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::applyAll, config.getIntervalMs(), config.getIntervalMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(config.getIntervalMs() * 2, TimeUnit.MILLISECONDS);
+    }
+
+    private void applyAll() {
+        try (Timer.Context ignored = runTimer.time()) {
+            for (String shardKey : shardKeyResolver.allShards()) {
+                apply(shardKey);
+            }
+        }
+    }
+
+    // A failing shard is retried on the next run without holding up the others
+    private void apply(String shardKey) {
+        try {
+            int read;
+            do {
+                read = donationEventStore.applyPending(shardKey, config.getBatchSize());
+                applied.mark(read);
+            } while (read == config.getBatchSize() && !scheduler.isShutdown());
+        } catch (Exception e) {
+            log.error("Failed to apply donation events on shard: {}", shardKey, e);
+        }
+    }
+}
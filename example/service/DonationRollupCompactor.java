@@ -0,0 +1,86 @@
+package com.example.service;
+
+import com.example.MyDropwizardConfiguration;
+import com.example.config.RollupConfig;
+import com.example.dao.DonationRollupStore;
+import com.example.models.Granularity;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the donation rollups by dropping minute buckets, then hour buckets, once they are older than
+ * their retention; the hour and day buckets covering them are kept. Optionally rebuilds the rollups from
+ * the transactions table on start.
+ */
+@Slf4j
+@Singleton
+public class DonationRollupCompactor implements Managed {
+
+    private static final long COMPACTION_INTERVAL_MINUTES = 60;
+
+    private final RollupConfig config;
+    private final DonationRollupStore donationRollupStore;
+    private ScheduledExecutorService compactor;
+
+    @Inject
+    public DonationRollupCompactor(MyDropwizardConfiguration configuration,
+                                   DonationRollupStore donationRollupStore) {
+        this.config = configuration.getRollups();
+        this.donationRollupStore = donationRollupStore;
+    }
+
+    @Override
+    public void start() {
+        if (config.isBackfillOnStart()) {
+            backfill();
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rollup-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compact, 0, COMPACTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    // Only buckets still within retention are rebuilt, since older ones would be compacted away again
+    private void backfill() {
+        log.info("Backfilling donation rollups from transactions");
+        donationRollupStore.backfill(Granularity.DAY, new Date(0));
+        donationRollupStore.backfill(Granularity.HOUR, hourCutoff());
+        donationRollupStore.backfill(Granularity.MINUTE, minuteCutoff());
+    }
+
+    private void compact() {
+        try {
+            long minutes = donationRollupStore.deleteExpired(Granularity.MINUTE, minuteCutoff());
+            long hours = donationRollupStore.deleteExpired(Granularity.HOUR, hourCutoff());
+            log.info("Compacted donation rollups, dropped {} minute and {} hour buckets", minutes, hours);
+        } catch (Exception e) {
+            log.error("Failed to compact donation rollups", e);
+        }
+    }
+
+    private Date minuteCutoff() {
+        return Date.from(Instant.now().minus(Duration.ofHours(config.getMinuteRetentionHours())));
+    }
+
+    private Date hourCutoff() {
+        return Date.from(Instant.now().minus(Duration.ofDays(config.getHourRetentionDays())));
+    }
+}
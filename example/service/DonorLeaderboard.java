@@ -0,0 +1,132 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.dao.TransactionStore;
+import com.example.entity.Transaction;
+import com.example.models.DonorTotal;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory top donors of each campaign, by summed successful donations.
+ *
+ * Each campaign keeps a min-heap bounded to {@link #TOP_K} donors, built from the database on first read
+ * and updated from new donations afterwards. A donor outside the heap is re-read from the database when
+ * they donate again, since their earlier donations are not tracked in memory. Status changes drop the
+ * campaign's heap, and heaps expire so that donations recorded by other instances are picked up.
+ */
+@Singleton
+public class DonorLeaderboard {
+
+    public static final int TOP_K = 25;
+    private static final long MAX_CACHED_CAMPAIGNS = 10_000;
+    private static final long TTL_MINUTES = 5;
+    private static final Comparator<DonorTotal> BY_TOTAL = Comparator.comparing(DonorTotal::getTotalAmount)
+            .thenComparing(DonorTotal::getDonorId, Comparator.reverseOrder());
+
+    private final TransactionStore transactionStore;
+    private final Cache<Long, TopDonors> leaderboards;
+
+    @Inject
+    public DonorLeaderboard(TransactionStore transactionStore, MetricRegistry metricRegistry) {
+        this.transactionStore = transactionStore;
+        this.leaderboards = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_CAMPAIGNS)
+                .expireAfterWrite(TTL_MINUTES, TimeUnit.MINUTES)
+                .build();
+        metricRegistry.register(MetricRegistry.name(DonorLeaderboard.class, "campaigns"),
+                (Gauge<Long>) leaderboards::size);
+    }
+
+    /**
+     * Top donors of a campaign, largest first. Anonymous donors are returned without their donor ID.
+     */
+    public List<DonorTotal> getTopDonors(Long campaignId, int limit) {
+        try {
+            return leaderboards.get(campaignId, () -> new TopDonors(transactionStore.getTopDonors(campaignId, TOP_K)))
+                    .top(limit).stream()
+                    .map(donor -> donor.isAnonymous() ? donor.toBuilder().donorId(null).build() : donor)
+                    .collect(Collectors.toList());
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to load top donors for campaign: " + campaignId, e.getCause());
+        }
+    }
+
+    /**
+     * Count a committed donation. Campaigns without a loaded heap pick it up when they are next read.
+     */
+    public void record(Transaction transaction) {
+        if (!"SUCCESS".equalsIgnoreCase(transaction.getStatus())) {
+            return;
+        }
+        TopDonors topDonors = leaderboards.getIfPresent(transaction.getCampaignId());
+        if (topDonors == null) {
+            return;
+        }
+        if (!topDonors.add(transaction)) {
+            transactionStore.getDonorTotal(transaction.getCampaignId(), transaction.getDonorId())
+                    .ifPresent(topDonors::offer);
+        }
+    }
+
+    public void invalidate(Long campaignId) {
+        leaderboards.invalidate(campaignId);
+    }
+
+    private static class TopDonors {
+        private final PriorityQueue<DonorTotal> heap = new PriorityQueue<>(BY_TOTAL);
+        private final Map<Long, DonorTotal> byDonorId = new HashMap<>();
+
+        private TopDonors(List<DonorTotal> donors) {
+            donors.forEach(this::offer);
+        }
+
+        // Adds the donation to a donor already in the heap, returning false for any other donor
+        private synchronized boolean add(Transaction transaction) {
+            DonorTotal current = byDonorId.get(transaction.getDonorId());
+            if (current == null) {
+                return false;
+            }
+            heap.remove(current);
+            DonorTotal updated = current.toBuilder()
+                    .totalAmount(current.getTotalAmount().add(transaction.getAmount()))
+                    .donations(current.getDonations() + 1)
+                    .anonymous(current.isAnonymous() || Boolean.TRUE.equals(transaction.getIsAnonymous()))
+                    .build();
+            heap.add(updated);
+            byDonorId.put(updated.getDonorId(), updated);
+            return true;
+        }
+
+        private synchronized void offer(DonorTotal donor) {
+            DonorTotal current = byDonorId.remove(donor.getDonorId());
+            if (current != null) {
+                heap.remove(current);
+            }
+            heap.add(donor);
+            byDonorId.put(donor.getDonorId(), donor);
+            if (heap.size() > TOP_K) {
+                byDonorId.remove(heap.poll().getDonorId());
+            }
+        }
+
+        private synchronized List<DonorTotal> top(int limit) {
+            return heap.stream()
+                    .sorted(BY_TOTAL.reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+    }
+}
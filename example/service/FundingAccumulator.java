@@ -0,0 +1,198 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.FundingWriteBehindConfig;
+import com.example.dao.CampaignStore;
+import com.example.entity.Campaign;
+import com.example.models.FundingDelta;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind accumulator for campaign funding totals.
+ *
+ * Donations to a viral campaign would all contend on the same campaigns row. In write-behind mode
+ * they are added to per-campaign LongAdders instead, which stripe concurrent updates across cells,
+ * and a single flusher applies the summed deltas to the database every flush interval.
+ * A flush takes its amounts out of the accumulators before writing them, and adds back the ones whose shard
+ * failed so they are retried. Reads merged during the write can miss the batch until it commits, but never
+ * count it twice.
+ * Campaigns with nothing left to flush are dropped from the accumulator, so it only holds recently funded ones.
+ */
+@Slf4j
+@Singleton
+public class FundingAccumulator implements Managed {
+
+    // Amounts are accumulated in minor units (paise) to keep them in a LongAdder
+    private static final int AMOUNT_SCALE = 2;
+
+    private final FundingWriteBehindConfig config;
+    private final CampaignStore campaignStore;
+    private final ConcurrentHashMap<Long, PendingFunding> pendingFunding = new ConcurrentHashMap<>();
+    // Entries removed on the last flush, only touched by the flushing thread
+    private List<Map.Entry<Long, PendingFunding>> removed = new ArrayList<>();
+    private final Timer flushTimer;
+    private ScheduledExecutorService flusher;
+
+    @Inject
+    public FundingAccumulator(MyDropwizardConfiguration configuration,
+                              CampaignStore campaignStore,
+                              MetricRegistry metricRegistry) {
+        this.config = configuration.getFundingWriteBehind();
+        this.campaignStore = campaignStore;
+        this.flushTimer = metricRegistry.timer(MetricRegistry.name(FundingAccumulator.class, "flush"));
+        metricRegistry.register(MetricRegistry.name(FundingAccumulator.class, "pendingCampaigns"),
+                (Gauge<Integer>) pendingFunding::size);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (config.isRecomputeOnStart()) {
+            log.info("Recomputing campaign funding totals from transactions");
+            campaignStore.recomputeFundingFromTransactions();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "funding-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, config.getFlushIntervalMs(), config.getFlushIntervalMs(),
+                TimeUnit.MILLISECONDS);
+        log.info("Funding write-behind enabled, flushing every {} ms", config.getFlushIntervalMs());
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(config.getFlushIntervalMs() * 2, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    /**
+     * Record a donation, to be written to the campaign on the next flush
+     */
+    public void add(Long campaignId, BigDecimal amount) {
+        PendingFunding pending = pendingFunding.computeIfAbsent(campaignId, id -> new PendingFunding());
+        pending.amount.add(amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        pending.donations.increment();
+    }
+
+    /**
+     * Copy of the campaign with its unflushed funding added to the persisted totals
+     */
+    public Campaign merge(Campaign campaign) {
+        PendingFunding pending = pendingFunding.get(campaign.getId());
+        if (pending == null) {
+            return campaign;
+        }
+        long amount = pending.amount.sum();
+        long donations = pending.donations.sum();
+        if (amount == 0 && donations == 0) {
+            return campaign;
+        }
+        BigDecimal fundRaised = campaign.getFundRaised() == null ? BigDecimal.ZERO : campaign.getFundRaised();
+        int donorCount = campaign.getDonorCount() == null ? 0 : campaign.getDonorCount();
+        return campaign.toBuilder()
+                .fundRaised(fundRaised.add(BigDecimal.valueOf(amount, AMOUNT_SCALE)))
+                .donorCount(donorCount + Math.toIntExact(donations))
+                .build();
+    }
+
+    void flush() {
+        Map<Long, FundingDelta> deltas = new HashMap<>();
+        pendingFunding.forEach((campaignId, pending) -> {
+            long amount = pending.amount.sum();
+            long donations = pending.donations.sum();
+            if (amount != 0 || donations != 0) {
+                // Taken out before the write, so a read after the commit does not also see it as pending
+                pending.amount.add(-amount);
+                pending.donations.add(-donations);
+                deltas.put(campaignId, new FundingDelta(campaignId, BigDecimal.valueOf(amount, AMOUNT_SCALE), donations));
+            }
+        });
+        if (deltas.isEmpty()) {
+            removeDrained();
+            return;
+        }
+        Map<Long, FundingDelta> failed = new HashMap<>(deltas);
+        try (Timer.Context ignored = flushTimer.time()) {
+            for (FundingDelta applied : campaignStore.incrementFunding(deltas.values())) {
+                failed.remove(applied.getCampaignId());
+            }
+            log.debug("Flushed funding for {} campaigns", deltas.size() - failed.size());
+        } catch (Exception e) {
+            log.error("Failed to flush funding for {} campaigns", deltas.size(), e);
+        }
+        if (!failed.isEmpty()) {
+            log.warn("Funding for {} campaigns was not flushed, will retry", failed.size());
+        }
+        // Only this thread removes entries, so the entries the deltas were taken from are still in the map
+        failed.values().forEach(delta -> {
+            PendingFunding pending = pendingFunding.get(delta.getCampaignId());
+            pending.amount.add(delta.getAmount().unscaledValue().longValueExact());
+            pending.donations.add(delta.getDonations());
+        });
+        removeDrained();
+    }
+
+    /**
+     * Remove entries with nothing pending. A donation can still reach an entry just after it is removed, through
+     * a reference taken before, so removed entries are checked again on the next flush and anything added to
+     * them since is moved back into the map. An entry is forgotten once a check finds it empty.
+     */
+    private void removeDrained() {
+        List<Map.Entry<Long, PendingFunding>> stillRemoved = new ArrayList<>();
+        for (Map.Entry<Long, PendingFunding> entry : removed) {
+            PendingFunding stale = entry.getValue();
+            long amount = stale.amount.sum();
+            long donations = stale.donations.sum();
+            if (amount != 0 || donations != 0) {
+                stale.amount.add(-amount);
+                stale.donations.add(-donations);
+                PendingFunding live = pendingFunding.computeIfAbsent(entry.getKey(), id -> new PendingFunding());
+                live.amount.add(amount);
+                live.donations.add(donations);
+                stillRemoved.add(entry);
+            }
+        }
+        pendingFunding.forEach((campaignId, pending) -> {
+            if (pending.amount.sum() == 0 && pending.donations.sum() == 0 && pendingFunding.remove(campaignId, pending)) {
+                stillRemoved.add(new AbstractMap.SimpleImmutableEntry<>(campaignId, pending));
+            }
+        });
+        removed = stillRemoved;
+    }
+
+    private static class PendingFunding {
+        private final LongAdder amount = new LongAdder();
+        private final LongAdder donations = new LongAdder();
+    }
+}
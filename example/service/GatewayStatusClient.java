@@ -0,0 +1,19 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.models.GatewayStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up payment statuses at the payment gateway
+ */
+public interface GatewayStatusClient {
+
+    /**
+     * Status of each transaction by transaction ID, in as few gateway calls as the gateway allows.
+     * Transactions missing from the result are treated as still pending.
+     */
+    Map<Long, GatewayStatus> getStatuses(List<Transaction> transactions);
+}
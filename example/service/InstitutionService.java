@@ -1,7 +1,10 @@
 package com.example.service;
 
 import com.example.entity.Institution;
+import com.example.models.Granularity;
+import com.example.models.TimeseriesPoint;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +19,7 @@ public interface InstitutionService {
     void updateInstitution(String shardKey, Long id, Institution institution);
 
     boolean institutionExists(String shardKey, Long id);
+
+    Optional<List<TimeseriesPoint>> getInstitutionTimeseries(String shardKey, Long id, Granularity granularity,
+                                                             Date from, Date to);
 }
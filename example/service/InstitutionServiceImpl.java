@@ -1,11 +1,15 @@
 package com.example.service;
 
+import com.example.dao.DonationRollupStore;
 import com.example.dao.InstitutionStore;
 import com.example.entity.Institution;
+import com.example.models.Granularity;
+import com.example.models.TimeseriesPoint;
 import lombok.RequiredArgsConstructor;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,7 @@ import java.util.Optional;
 public class InstitutionServiceImpl implements InstitutionService {
 
     private final InstitutionStore institutionStore;
+    private final DonationRollupStore donationRollupStore;
 
     @Override
     public List<Institution> getAllInstitutions(String shardKey) {
@@ -38,6 +43,15 @@ public class InstitutionServiceImpl implements InstitutionService {
         institutionStore.update(shardKey, id, institution);
     }
 
+    @Override
+    public Optional<List<TimeseriesPoint>> getInstitutionTimeseries(String shardKey, Long id, Granularity granularity,
+                                                                    Date from, Date to) {
+        if (!institutionStore.exists(shardKey, id)) {
+            return Optional.empty();
+        }
+        return Optional.of(donationRollupStore.getInstitutionTimeseries(id, granularity, from, to));
+    }
+
     @Override
     public boolean institutionExists(String shardKey, Long id) {
         return institutionStore.exists(shardKey, id);
@@ -0,0 +1,195 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.dao.CampaignStore;
+import com.example.entity.Campaign;
+import com.example.models.CampaignSummary;
+import io.dropwizard.lifecycle.Managed;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live campaigns ranked by priority score, then featured first, then by urgency, in a concurrent skip list.
+ *
+ * Campaigns are held as summaries. The index is loaded from every shard on start and kept current from
+ * campaign creates, updates and donations on this instance, so pages are served from memory. A periodic
+ * sync picks up changes made by other instances. Pages continue after a rank cursor, so campaigns moving
+ * in the ranking between requests can be skipped or repeated, but never break paging.
+ */
+@Slf4j
+@Singleton
+public class LiveCampaignFeed implements Managed {
+
+    private static final long REFRESH_INTERVAL_SECONDS = 60;
+    private static final List<String> URGENCY_LEVELS = List.of("LOW", "MEDIUM", "HIGH", "CRITICAL");
+
+    private final ConcurrentSkipListMap<RankKey, CampaignSummary> ranked = new ConcurrentSkipListMap<>();
+    private final Map<Long, RankKey> rankKeys = new ConcurrentHashMap<>();
+    private final CampaignChangeFeed<CampaignSummary> changeFeed;
+    private ScheduledExecutorService refresher;
+
+    @Inject
+    public LiveCampaignFeed(CampaignStore campaignStore, MetricRegistry metricRegistry) {
+        this.changeFeed = new CampaignChangeFeed<>(campaignStore, CampaignStore.SUMMARY_PROPERTIES,
+                CampaignSummary.class, CampaignSummary::getId, this::update, this::remove, rankKeys::keySet);
+        metricRegistry.register(MetricRegistry.name(LiveCampaignFeed.class, "size"),
+                (Gauge<Integer>) rankKeys::size);
+    }
+
+    @Override
+    public void start() {
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::reload, REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Up to limit campaigns ranked after the cursor of the previous page, or from the top without one
+     */
+    public List<CampaignSummary> page(String afterCursor, int limit) {
+        Map<RankKey, CampaignSummary> remaining = afterCursor == null ? ranked : ranked.tailMap(RankKey.parse(afterCursor), false);
+        List<CampaignSummary> page = new ArrayList<>(limit);
+        for (CampaignSummary campaign : remaining.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(campaign);
+        }
+        return page;
+    }
+
+    /**
+     * Cursor of a campaign's current position, to continue the feed after it
+     */
+    public static String cursorOf(CampaignSummary campaign) {
+        return RankKey.of(campaign).toCursor();
+    }
+
+    /**
+     * Index the current state of a campaign, dropping it once it is no longer live
+     */
+    public void update(Campaign campaign) {
+        update(CampaignSummary.builder()
+                .id(campaign.getId())
+                .beneficiaryId(campaign.getBeneficiaryId())
+                .institutionId(campaign.getInstitutionId())
+                .title(campaign.getTitle())
+                .category(campaign.getCategory())
+                .fundRaised(campaign.getFundRaised())
+                .donorCount(campaign.getDonorCount())
+                .isLive(campaign.getIsLive())
+                .isApproved(campaign.getIsApproved())
+                .isFulfilled(campaign.getIsFulfilled())
+                .isFeatured(campaign.getIsFeatured())
+                .urgencyLevel(campaign.getUrgencyLevel())
+                .priorityScore(campaign.getPriorityScore())
+                .created(campaign.getCreated())
+                .build());
+    }
+
+    private synchronized void update(CampaignSummary campaign) {
+        RankKey previous = rankKeys.remove(campaign.getId());
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+        if (Boolean.TRUE.equals(campaign.getIsLive())) {
+            RankKey key = RankKey.of(campaign);
+            ranked.put(key, campaign);
+            rankKeys.put(campaign.getId(), key);
+        }
+    }
+
+    public synchronized void remove(Long campaignId) {
+        RankKey previous = rankKeys.remove(campaignId);
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+    }
+
+    /**
+     * Add a donation to the indexed copy of a campaign. Funding does not change the rank.
+     */
+    public synchronized void recordFunding(Long campaignId, BigDecimal amount) {
+        RankKey key = rankKeys.get(campaignId);
+        if (key == null) {
+            return;
+        }
+        ranked.computeIfPresent(key, (k, campaign) -> campaign.toBuilder()
+                .fundRaised((campaign.getFundRaised() == null ? BigDecimal.ZERO : campaign.getFundRaised()).add(amount))
+                .donorCount((campaign.getDonorCount() == null ? 0 : campaign.getDonorCount()) + 1)
+                .build());
+    }
+
+    private void reload() {
+        try {
+            int read = changeFeed.sync();
+            log.info("Live campaign feed synced {} campaigns, {} live", read, rankKeys.size());
+        } catch (Exception e) {
+            log.error("Failed to reload live campaign feed", e);
+        }
+    }
+
+    @Value
+    private static class RankKey implements Comparable<RankKey> {
+        private static final Comparator<RankKey> ORDER = Comparator.comparingInt(RankKey::getPriorityScore).reversed()
+                .thenComparing(RankKey::isFeatured, Comparator.reverseOrder())
+                .thenComparing(RankKey::getUrgency, Comparator.reverseOrder())
+                .thenComparing(RankKey::getId);
+
+        int priorityScore;
+        boolean featured;
+        int urgency;
+        long id;
+
+        private static RankKey of(CampaignSummary campaign) {
+            return new RankKey(campaign.getPriorityScore() == null ? 0 : campaign.getPriorityScore(),
+                    Boolean.TRUE.equals(campaign.getIsFeatured()),
+                    campaign.getUrgencyLevel() == null ? -1 : URGENCY_LEVELS.indexOf(campaign.getUrgencyLevel().toUpperCase()),
+                    campaign.getId());
+        }
+
+        private static RankKey parse(String cursor) {
+            String[] parts = cursor.split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid feed cursor: " + cursor);
+            }
+            return new RankKey(Integer.parseInt(parts[0]), "1".equals(parts[1]), Integer.parseInt(parts[2]),
+                    Long.parseLong(parts[3]));
+        }
+
+        private String toCursor() {
+            return priorityScore + ":" + (featured ? 1 : 0) + ":" + urgency + ":" + id;
+        }
+
+        @Override
+        public int compareTo(RankKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
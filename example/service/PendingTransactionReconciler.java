@@ -0,0 +1,177 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.ReconcilerConfig;
+import com.example.dao.TransactionStore;
+import com.example.entity.Transaction;
+import com.example.models.GatewayStatus;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves transactions left pending, by asking the payment gateway for their status.
+ *
+ * Each run keyset-scans every shard for transactions pending since before the threshold and hands each
+ * page to a bounded pool, which checks it with the gateway in one call and applies the resolved statuses
+ * in one batched update per shard. Runs on several instances only repeat gateway checks, since updates
+ * skip transactions that are no longer pending. Throughput is reported by the checked, succeeded and
+ * failed meters and the backlog by the overdue gauge.
+ */
+@Slf4j
+@Singleton
+public class PendingTransactionReconciler implements Managed {
+
+    private final ReconcilerConfig config;
+    private final TransactionStore transactionStore;
+    private final GatewayStatusClient gatewayStatusClient;
+    private final DonorLeaderboard donorLeaderboard;
+    private final Timer runTimer;
+    private final Meter checked;
+    private final Meter succeeded;
+    private final Meter failed;
+    private final AtomicLong overdue = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    @Inject
+    public PendingTransactionReconciler(MyDropwizardConfiguration configuration,
+                                        TransactionStore transactionStore,
+                                        GatewayStatusClient gatewayStatusClient,
+                                        DonorLeaderboard donorLeaderboard,
+                                        MetricRegistry metricRegistry) {
+        this.config = configuration.getReconciler();
+        this.transactionStore = transactionStore;
+        this.gatewayStatusClient = gatewayStatusClient;
+        this.donorLeaderboard = donorLeaderboard;
+        this.runTimer = metricRegistry.timer(MetricRegistry.name(PendingTransactionReconciler.class, "run"));
+        this.checked = metricRegistry.meter(MetricRegistry.name(PendingTransactionReconciler.class, "checked"));
+        this.succeeded = metricRegistry.meter(MetricRegistry.name(PendingTransactionReconciler.class, "succeeded"));
+        this.failed = metricRegistry.meter(MetricRegistry.name(PendingTransactionReconciler.class, "failed"));
+        metricRegistry.register(MetricRegistry.name(PendingTransactionReconciler.class, "overdue"),
+                (Gauge<Long>) overdue::get);
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "reconciler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reconciler-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, config.getIntervalSeconds(), config.getIntervalSeconds(),
+                TimeUnit.SECONDS);
+        log.info("Reconciling transactions pending for over {} minutes every {} seconds",
+                config.getPendingAfterMinutes(), config.getIntervalSeconds());
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void reconcile() {
+        try (Timer.Context ignored = runTimer.time()) {
+            Date cutoff = Date.from(Instant.now().minus(Duration.ofMinutes(config.getPendingAfterMinutes())));
+            // At most parallelism pages are checked at once; the scan waits for the oldest before reading on
+            Deque<Future<?>> inFlight = new ArrayDeque<>();
+            long found = 0;
+            Long afterId = null;
+            List<Transaction> page;
+            do {
+                page = transactionStore.getPendingCreatedBefore(cutoff, afterId, config.getBatchSize());
+                if (page.isEmpty()) {
+                    break;
+                }
+                found += page.size();
+                afterId = page.get(page.size() - 1).getTransactionId();
+                if (inFlight.size() == config.getParallelism()) {
+                    inFlight.poll().get();
+                }
+                List<Transaction> batch = page;
+                inFlight.add(workers.submit(() -> reconcile(batch)));
+            } while (page.size() == config.getBatchSize());
+            for (Future<?> batch : inFlight) {
+                batch.get();
+            }
+            overdue.set(found);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Failed to reconcile pending transactions", e.getCause());
+        } catch (Exception e) {
+            log.error("Failed to reconcile pending transactions", e);
+        }
+    }
+
+    private void reconcile(List<Transaction> batch) {
+        try {
+            Map<Long, GatewayStatus> statuses = gatewayStatusClient.getStatuses(batch);
+            checked.mark(batch.size());
+            List<Transaction> resolved = new ArrayList<>();
+            for (Transaction transaction : batch) {
+                GatewayStatus status = statuses.get(transaction.getTransactionId());
+                if (status == null || status.getState() == GatewayStatus.State.PENDING) {
+                    continue;
+                }
+                Transaction target = transaction.toBuilder().build();
+                if (status.getState() == GatewayStatus.State.SUCCESS) {
+                    target.markAsSuccess();
+                } else {
+                    target.markAsFailed(status.getFailureReason());
+                }
+                resolved.add(target);
+            }
+            if (resolved.isEmpty()) {
+                return;
+            }
+            List<Transaction> changed = transactionStore.resolvePending(resolved);
+            for (Transaction transaction : changed) {
+                ("SUCCESS".equals(transaction.getStatus()) ? succeeded : failed).mark();
+            }
+            // Newly successful donations can reorder donors, so the leaderboards are rebuilt on next read
+            changed.stream()
+                    .map(Transaction::getCampaignId)
+                    .distinct()
+                    .forEach(donorLeaderboard::invalidate);
+        } catch (Exception e) {
+            log.error("Failed to reconcile batch of {} pending transactions", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.service;
+
+import com.example.entity.Transaction;
+import com.example.models.GatewayStatus;
+
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for the payment gateway. Payments are pending until a status is set for their gateway
+ * transaction ID, so nothing is resolved unless a caller says so.
+ */
+@Singleton
+public class StubGatewayStatusClient implements GatewayStatusClient {
+
+    private final Map<String, GatewayStatus> statuses = new ConcurrentHashMap<>();
+
+    public void setStatus(String gatewayTransactionId, GatewayStatus status) {
+        statuses.put(gatewayTransactionId, status);
+    }
+
+    @Override
+    public Map<Long, GatewayStatus> getStatuses(List<Transaction> transactions) {
+        Map<Long, GatewayStatus> result = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getGatewayTransactionId() != null) {
+                GatewayStatus status = statuses.get(transaction.getGatewayTransactionId());
+                if (status != null) {
+                    result.put(transaction.getTransactionId(), status);
+                }
+            }
+        }
+        return result;
+    }
+}
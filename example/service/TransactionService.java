@@ -1,25 +1,42 @@
 package com.example.service;
 
 import com.example.entity.Transaction;
+import com.example.models.TransactionBatchResult;
+import com.example.models.TransactionSummary;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface TransactionService {
 
     List<Transaction> getAllTransactions(String shardKey);
 
+    List<Transaction> getAllTransactions(String shardKey, Long afterId, int limit);
+
     Optional<Transaction> getTransactionById(String shardKey, String transactionId);
 
+    Optional<Transaction> getTransactionByGatewayTransactionId(String shardKey, String gatewayTransactionId);
+
     void createTransaction(String shardKey, Transaction transaction);
 
+    TransactionBatchResult createTransactions(String shardKey, List<Transaction> transactions);
+
     void updateTransaction(String shardKey, String transactionId, Transaction transaction);
 
     boolean transactionExists(String shardKey, String transactionId);
 
-    List<Transaction> getTransactionsByDonorId(String shardKey, Long donorId);
+    List<TransactionSummary> getTransactionSummariesByDonorId(String shardKey, Long donorId);
+
+    List<TransactionSummary> getTransactionSummariesByDonorId(String shardKey, Long donorId, Long afterId, int limit);
 
     List<Transaction> getTransactionsByCampaignId(String shardKey, Long campaignId);
 
+    List<Transaction> getTransactionsByCampaignId(String shardKey, Long campaignId, Long afterId, int limit);
+
+    void exportTransactionsByCampaignId(String shardKey, Long campaignId, Consumer<Transaction> consumer);
+
     List<Transaction> getTransactionsByStatus(String shardKey, String status);
+
+    List<Transaction> getTransactionsByStatus(String shardKey, String status, Long afterId, int limit);
 }
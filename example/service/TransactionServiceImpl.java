@@ -1,9 +1,9 @@
 package com.example.service;
 
-import com.example.dao.CampaignStore;
 import com.example.dao.TransactionStore;
-import com.example.entity.Campaign;
 import com.example.entity.Transaction;
+import com.example.models.TransactionBatchResult;
+import com.example.models.TransactionSummary;
 import com.example.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,14 +13,19 @@ import javax.inject.Singleton;
 import javax.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final TransactionStore transactionStore;
-    private final CampaignStore campaignStore;
+    private final FundingAccumulator fundingAccumulator;
+    private final DonorLeaderboard donorLeaderboard;
+    private final LiveCampaignFeed liveCampaignFeed;
 
     @Override
     public List<Transaction> getAllTransactions(String shardKey) {
@@ -38,6 +43,16 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public List<Transaction> getAllTransactions(String shardKey, Long afterId, int limit) {
+        try {
+            return transactionStore.getAll(shardKey, afterId, limit);
+        } catch (Exception e) {
+            log.error("Failed to get transactions page after: {} for shard: {}", afterId, shardKey, e);
+            throw new RuntimeException("Failed to retrieve transactions", e);
+        }
+    }
+
     @Override
     public Optional<Transaction> getTransactionById(String shardKey, String transactionId) {
         try {
@@ -74,14 +89,16 @@ public class TransactionServiceImpl implements TransactionService {
                 throw new IllegalArgumentException("Transaction amount must be positive");
             }
 
-            Campaign campaign = campaignStore.getById(shardKey, transaction.getCampaignId())
-                    .orElseThrow(() -> new RuntimeException("Campaign not found: " + transaction.getCampaignId()));
-
-            campaign.setFundRaised(campaign.getFundRaised().add(transaction.getAmount()));
-
-            transactionStore.create(shardKey, transaction);
-            campaignStore.update(shardKey, transaction.getCampaignId(), campaign);
-
+            if (fundingAccumulator.isEnabled()) {
+                // Campaign totals are written behind by the accumulator
+                transactionStore.createWithoutFunding(shardKey, transaction);
+                fundingAccumulator.add(transaction.getCampaignId(), transaction.getAmount());
+            } else {
+                // Inserts the transaction and increments the campaign totals in one session
+                transactionStore.create(shardKey, transaction);
+            }
+            donorLeaderboard.record(transaction);
+            liveCampaignFeed.recordFunding(transaction.getCampaignId(), transaction.getAmount());
 
             log.info("Transaction created successfully for campaign: {}", transaction.getCampaignId());
         } catch (RuntimeException e) {
@@ -94,6 +111,53 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public TransactionBatchResult createTransactions(String shardKey, List<Transaction> transactions) {
+        try {
+            if (transactions == null || transactions.isEmpty()) {
+                throw new IllegalArgumentException("Transactions cannot be null or empty");
+            }
+            if (transactions.size() > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("A batch can contain at most " + MAX_BATCH_SIZE + " transactions");
+            }
+            for (Transaction transaction : transactions) {
+                if (transaction == null) {
+                    throw new IllegalArgumentException("Transaction cannot be null");
+                }
+                if (transaction.getCampaignId() == null) {
+                    throw new IllegalArgumentException("Campaign ID cannot be null");
+                }
+                if (transaction.getDonorId() == null) {
+                    throw new IllegalArgumentException("Donor ID cannot be null");
+                }
+                if (transaction.getAmount() == null || transaction.getAmount().signum() <= 0) {
+                    throw new IllegalArgumentException("Transaction amount must be positive");
+                }
+                if (transaction.getStatus() == null || transaction.getStatus().trim().isEmpty()) {
+                    throw new IllegalArgumentException("Transaction status cannot be null or empty");
+                }
+            }
+
+            TransactionBatchResult result = transactionStore.createBatch(shardKey, transactions);
+            for (TransactionBatchResult.Row row : result.getRows()) {
+                if (row.getOutcome() == TransactionBatchResult.Outcome.CREATED) {
+                    Transaction transaction = transactions.get(row.getIndex());
+                    donorLeaderboard.record(transaction);
+                    liveCampaignFeed.recordFunding(transaction.getCampaignId(), transaction.getAmount());
+                }
+            }
+            log.info("Transaction batch of {} recorded: {} created, {} duplicates, {} failed", transactions.size(),
+                    result.count(TransactionBatchResult.Outcome.CREATED),
+                    result.count(TransactionBatchResult.Outcome.DUPLICATE),
+                    result.count(TransactionBatchResult.Outcome.FAILED));
+            return result;
+        } catch (RuntimeException e) {
+            log.error("Failed to create transaction batch of size: {}",
+                    transactions != null ? transactions.size() : 0, e);
+            throw e;
+        }
+    }
+
     @Override
     public void updateTransaction(String shardKey, String transactionId, Transaction transaction) {
         try {
@@ -107,11 +171,12 @@ public class TransactionServiceImpl implements TransactionService {
                 throw new IllegalArgumentException("Transaction cannot be null");
             }
 
-            if (!transactionStore.exists(shardKey, transactionId)) {
-                throw new RuntimeException("Transaction not found: " + transactionId);
-            }
+            Transaction existing = transactionStore.getById(shardKey, transactionId)
+                    .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId));
 
             transactionStore.update(shardKey, transactionId, transaction);
+            // Status and amount changes can reorder donors, so the leaderboard is rebuilt on next read
+            donorLeaderboard.invalidate(existing.getCampaignId());
             log.info("Transaction updated successfully: {}", transactionId);
         } catch (RuntimeException e) {
             log.error("Failed to update transaction: {} for shard: {}", transactionId, shardKey, e);
@@ -122,6 +187,11 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public Optional<Transaction> getTransactionByGatewayTransactionId(String shardKey, String gatewayTransactionId) {
+        return transactionStore.getByGatewayTransactionId(shardKey, gatewayTransactionId);
+    }
+
     @Override
     public boolean transactionExists(String shardKey, String transactionId) {
         try {
@@ -142,7 +212,7 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     @Override
-    public List<Transaction> getTransactionsByDonorId(String shardKey, Long donorId) {
+    public List<TransactionSummary> getTransactionSummariesByDonorId(String shardKey, Long donorId) {
         try {
 //            if (shardKey == null || shardKey.trim().isEmpty()) {
 //                throw new IllegalArgumentException("Shard key cannot be null or empty");
@@ -150,7 +220,7 @@ public class TransactionServiceImpl implements TransactionService {
             if (donorId == null) {
                 throw new IllegalArgumentException("Donor ID cannot be null");
             }
-            return transactionStore.getByDonorId(shardKey, donorId);
+            return transactionStore.getSummariesByDonorId(shardKey, donorId);
         } catch (IllegalArgumentException e) {
             log.error("Invalid parameters - shardKey: {}, donorId: {}", shardKey, donorId, e);
             throw e;
@@ -160,6 +230,22 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public List<TransactionSummary> getTransactionSummariesByDonorId(String shardKey, Long donorId, Long afterId, int limit) {
+        try {
+            if (donorId == null) {
+                throw new IllegalArgumentException("Donor ID cannot be null");
+            }
+            return transactionStore.getSummariesByDonorId(shardKey, donorId, afterId, limit);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters - shardKey: {}, donorId: {}", shardKey, donorId, e);
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to get transactions page by donor ID: {} after: {} for shard: {}", donorId, afterId, shardKey, e);
+            throw new RuntimeException("Failed to retrieve transactions by donor", e);
+        }
+    }
+
     @Override
     public List<Transaction> getTransactionsByCampaignId(String shardKey, Long campaignId) {
         try {
@@ -179,6 +265,31 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
+    @Override
+    public List<Transaction> getTransactionsByCampaignId(String shardKey, Long campaignId, Long afterId, int limit) {
+        try {
+            if (campaignId == null) {
+                throw new IllegalArgumentException("Campaign ID cannot be null");
+            }
+            return transactionStore.getByCampaignId(shardKey, campaignId, afterId, limit);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters - shardKey: {}, campaignId: {}", shardKey, campaignId, e);
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to get transactions page by campaign ID: {} after: {} for shard: {}", campaignId, afterId, shardKey, e);
+            throw new RuntimeException("Failed to retrieve transactions by campaign", e);
+        }
+    }
+
+    @Override
+    public void exportTransactionsByCampaignId(String shardKey, Long campaignId, Consumer<Transaction> consumer) {
+        if (campaignId == null) {
+            throw new IllegalArgumentException("Campaign ID cannot be null");
+        }
+        log.info("Exporting transactions for campaign: {}", campaignId);
+        transactionStore.streamByCampaignId(shardKey, campaignId, consumer);
+    }
+
     @Override
     public List<Transaction> getTransactionsByStatus(String shardKey, String status) {
         try {
@@ -197,4 +308,20 @@ public class TransactionServiceImpl implements TransactionService {
             throw new RuntimeException("Failed to retrieve transactions by status", e);
         }
     }
+
+    @Override
+    public List<Transaction> getTransactionsByStatus(String shardKey, String status, Long afterId, int limit) {
+        try {
+            if (status == null || status.trim().isEmpty()) {
+                throw new IllegalArgumentException("Status cannot be null or empty");
+            }
+            return transactionStore.getByStatus(shardKey, status, afterId, limit);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters - shardKey: {}, status: {}", shardKey, status, e);
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to get transactions page by status: {} after: {} for shard: {}", status, afterId, shardKey, e);
+            throw new RuntimeException("Failed to retrieve transactions by status", e);
+        }
+    }
 }
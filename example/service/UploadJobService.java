@@ -0,0 +1,18 @@
+package com.example.service;
+
+import com.example.models.UploadJob;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface UploadJobService {
+
+    /**
+     * Take the upload off the request and queue it, returning the job to poll.
+     * Fails with {@link java.util.concurrent.RejectedExecutionException} when the upload queue is full.
+     */
+    UploadJob submitReportUpload(String shardKey, Long campaignId, InputStream inputStream, String fileName,
+                                 String contentType);
+
+    Optional<UploadJob> getJob(String jobId);
+}
@@ -0,0 +1,184 @@
+package com.example.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.UploadConfig;
+import com.example.models.UploadJob;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.lifecycle.Managed;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs report uploads on a bounded pool, so request threads return as soon as the upload is received.
+ *
+ * The multipart stream cannot outlive its request, so it is spooled to a temporary file first, then
+ * streamed to Docstore from there. Jobs are kept in memory on the instance that accepted the upload.
+ */
+@Slf4j
+@Singleton
+public class UploadJobServiceImpl implements UploadJobService, Managed {
+
+    private final DosctoreService dosctoreService;
+    private final CampaignService campaignService;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, UploadJob> jobs;
+
+    @Inject
+    public UploadJobServiceImpl(DosctoreService dosctoreService,
+                                CampaignService campaignService,
+                                MyDropwizardConfiguration configuration,
+                                MetricRegistry metricRegistry) {
+        this.dosctoreService = dosctoreService;
+        this.campaignService = campaignService;
+        UploadConfig config = configuration.getUploads();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Jobs are written again when they finish, so finished jobs stay pollable for the whole retention
+        this.jobs = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getJobRetentionMinutes(), TimeUnit.MINUTES)
+                .build();
+        metricRegistry.register(MetricRegistry.name(UploadJobServiceImpl.class, "queued"),
+                (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register(MetricRegistry.name(UploadJobServiceImpl.class, "running"),
+                (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    @Override
+    public void start() {
+        // The pool is created with the service
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public UploadJob submitReportUpload(String shardKey, Long campaignId, InputStream inputStream, String fileName,
+                                        String contentType) {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Upload queue is full");
+        }
+        Path spooled = spool(inputStream);
+        UploadJob job;
+        try {
+            job = UploadJob.create(campaignId, fileName, Files.size(spooled));
+        } catch (IOException e) {
+            deleteQuietly(spooled);
+            throw new RuntimeException("Failed to receive upload for campaign: " + campaignId, e);
+        }
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> upload(job, shardKey, spooled, contentType));
+        } catch (RejectedExecutionException e) {
+            // The queue filled up while the upload was being received
+            jobs.invalidate(job.getJobId());
+            deleteQuietly(spooled);
+            throw e;
+        }
+        log.info("Queued upload job {} for campaign: {}", job.getJobId(), campaignId);
+        return job;
+    }
+
+    @Override
+    public Optional<UploadJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    private void upload(UploadJob job, String shardKey, Path spooled, String contentType) {
+        job.setStatus(UploadJob.Status.RUNNING);
+        try (InputStream inputStream = new ProgressInputStream(Files.newInputStream(spooled), job)) {
+            String fileId = dosctoreService.uploadStream(inputStream, job.getFileName(), contentType);
+            campaignService.updateReportFileId(shardKey, job.getCampaignId(), fileId);
+            job.setFileId(fileId);
+            job.setStatus(UploadJob.Status.SUCCEEDED);
+            log.info("Upload job {} finished with file ID: {}", job.getJobId(), fileId);
+        } catch (Exception e) {
+            log.error("Upload job {} failed for campaign: {}", job.getJobId(), job.getCampaignId(), e);
+            job.setError(e.getMessage());
+            job.setStatus(UploadJob.Status.FAILED);
+        } finally {
+            deleteQuietly(spooled);
+            jobs.put(job.getJobId(), job);
+        }
+    }
+
+    private static Path spool(InputStream inputStream) {
+        try {
+            Path spooled = Files.createTempFile("report_upload_", null);
+            try {
+                Files.copy(inputStream, spooled, StandardCopyOption.REPLACE_EXISTING);
+                return spooled;
+            } catch (IOException e) {
+                deleteQuietly(spooled);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to receive upload", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete spooled upload: {}", path, e);
+        }
+    }
+
+    // Reports bytes read so far as the job's uploaded bytes; a chunk is read just before it is uploaded
+    private static class ProgressInputStream extends FilterInputStream {
+        private final UploadJob job;
+        private long read;
+
+        private ProgressInputStream(InputStream inputStream, UploadJob job) {
+            super(inputStream);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                advance(count);
+            }
+            return count;
+        }
+
+        private void advance(long count) {
+            read += count;
+            job.setUploadedBytes(read);
+        }
+    }
+}
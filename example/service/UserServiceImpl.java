@@ -111,7 +111,7 @@ public class UserServiceImpl implements UserService {
         }
 
         // Update user using mutator
-        userStore.updateUser(email, userEntity -> {
+        userStore.updateUser(existingEntity.get().getId(), email, userEntity -> {
             if (user.getName() != null) {
                 userEntity.setName(user.getName());
             }
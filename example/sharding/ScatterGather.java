@@ -0,0 +1,205 @@
+package com.example.sharding;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.MyDropwizardConfiguration;
+import com.example.config.ScatterGatherConfig;
+import com.example.utils.DaoUtils;
+import com.google.common.collect.Iterators;
+import io.appform.dropwizard.sharding.dao.RelationalDao;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Criteria;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.transform.Transformers;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs a query on every shard in parallel on a bounded pool and gathers the rows.
+ *
+ * Each query gets a fresh criteria per shard, since a {@link DetachedCriteria} cannot be executed from
+ * several threads at once. Shards that fail or miss the shard deadline are left out and reported in
+ * {@link ShardResults#getFailedShards()}. Per-shard latency is recorded in the shards.<i>.latency timers.
+ *
+ * Callers returning rows to a client use {@link ShardResults#requireComplete()}: a missing shard looks
+ * exactly like a shard without rows, so reading {@link ShardResults#getItems()} of a partial result is only
+ * right where an answer from any one shard settles the query, such as a hit on a unique column.
+ */
+@Slf4j
+@Singleton
+public class ScatterGather {
+
+    private final ShardKeyResolver shardKeyResolver;
+    private final MetricRegistry metricRegistry;
+    private final ScatterGatherConfig config;
+    private final ExecutorService executor;
+    private final Meter partialResults;
+
+    @Inject
+    public ScatterGather(ShardKeyResolver shardKeyResolver,
+                         MyDropwizardConfiguration configuration,
+                         MetricRegistry metricRegistry) {
+        this.shardKeyResolver = shardKeyResolver;
+        this.metricRegistry = metricRegistry;
+        this.config = configuration.getScatterGather();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "scatter-gather-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.partialResults = metricRegistry.meter(MetricRegistry.name(ScatterGather.class, "partialResults"));
+    }
+
+    /**
+     * Up to maxResults rows from every shard, in shard order. Neither merged nor globally limited, so only
+     * for lookups settled by any one shard or callers that aggregate every row; listings use {@link #selectPage}.
+     */
+    public <T> ShardResults<T> select(RelationalDao<T> dao, Supplier<DetachedCriteria> criteria, int maxResults) {
+        return select(dao, shardKeyResolver.allShards(), criteria, maxResults);
+    }
+
+    /**
+     * Up to maxResults rows from the given shards, in shard order
+     */
+    public <T> ShardResults<T> select(RelationalDao<T> dao, List<String> shardKeys,
+                                      Supplier<DetachedCriteria> criteria, int maxResults) {
+        ShardResults<List<T>> perShard = scatter(shardKeys, criteria,
+                (shardKey, shardCriteria) -> dao.select(shardKey, shardCriteria, 0, maxResults));
+        List<T> items = new ArrayList<>();
+        for (List<T> rows : perShard.getItems()) {
+            items.addAll(rows.subList(0, Math.min(rows.size(), maxResults - items.size())));
+        }
+        return new ShardResults<>(items, perShard.getFailedShards());
+    }
+
+    /**
+     * Seek the same page on every shard and k-way merge the id-ordered results, keeping the lowest limit ids
+     */
+    public <T> ShardResults<T> selectPage(RelationalDao<T> dao, Supplier<DetachedCriteria> criteria,
+                                          String idProperty, Function<T, Long> idExtractor,
+                                          Long afterId, int limit) {
+        return mergePage(scatter(shardKeyResolver.allShards(),
+                () -> DaoUtils.seek(criteria.get(), idProperty, afterId),
+                (shardKey, shardCriteria) -> dao.select(shardKey, shardCriteria, 0, limit)), idExtractor, limit);
+    }
+
+    /**
+     * Like {@link #selectPage}, for criteria with a projection whose aliases match the properties of the
+     * projection type. Only the projected columns are read, and rows are built as projection type beans.
+     */
+    public <T, R> ShardResults<R> selectProjectedPage(RelationalDao<T> dao, Supplier<DetachedCriteria> criteria,
+                                                      Class<R> projectionType, String idProperty,
+                                                      Function<R, Long> idExtractor, Long afterId, int limit) {
+        return mergePage(scatter(shardKeyResolver.allShards(),
+                () -> DaoUtils.seek(criteria.get(), idProperty, afterId)
+                        .setResultTransformer(Transformers.aliasToBean(projectionType)),
+                (shardKey, shardCriteria) -> dao.runInSession(shardKey, session -> list(shardCriteria
+                        .getExecutableCriteria(session)
+                        .setMaxResults(limit), projectionType))), idExtractor, limit);
+    }
+
+    private static <R> List<R> list(Criteria criteria, Class<R> type) {
+        List<?> rows = criteria.list();
+        List<R> items = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            items.add(type.cast(row));
+        }
+        return items;
+    }
+
+    // Lowest limit ids of the id-ordered shard results
+    private static <T> ShardResults<T> mergePage(ShardResults<List<T>> perShard, Function<T, Long> idExtractor,
+                                                 int limit) {
+        List<T> items = new ArrayList<>(limit);
+        Iterators.addAll(items, Iterators.limit(Iterators.mergeSorted(
+                Iterators.transform(perShard.getItems().iterator(), List::iterator),
+                Comparator.comparing(idExtractor)), limit));
+        return new ShardResults<>(items, perShard.getFailedShards());
+    }
+
+    private <T> ShardResults<List<T>> scatter(List<String> shardKeys, Supplier<DetachedCriteria> criteria,
+                                              ShardQuery<T> query) {
+        List<Future<List<T>>> futures = new ArrayList<>(shardKeys.size());
+        AtomicLongArray started = new AtomicLongArray(shardKeys.size());
+        for (int i = 0; i < shardKeys.size(); i++) {
+            String shardKey = shardKeys.get(i);
+            int shard = i;
+            Timer latency = metricRegistry.timer(MetricRegistry.name("shards",
+                    String.valueOf(shardKeyResolver.shardIndex(shardKey)), "latency"));
+            futures.add(executor.submit(() -> {
+                started.set(shard, System.nanoTime());
+                try (Timer.Context ignored = latency.time()) {
+                    return query.run(shardKey, criteria.get());
+                }
+            }));
+        }
+
+        long submitted = System.nanoTime();
+        List<List<T>> results = new ArrayList<>(shardKeys.size());
+        List<String> failedShards = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<List<T>> future = futures.get(i);
+            String shardKey = shardKeys.get(i);
+            try {
+                results.add(await(future, started, i, submitted));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Query on shard {} timed out after {} ms", shardKey, config.getShardTimeoutMs());
+                failedShards.add(shardKey);
+            } catch (ExecutionException e) {
+                log.error("Query on shard {} failed", shardKey, e.getCause());
+                failedShards.add(shardKey);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new RuntimeException("Interrupted while querying shards", e);
+            }
+        }
+        if (!failedShards.isEmpty()) {
+            partialResults.mark();
+        }
+        return new ShardResults<>(results, failedShards);
+    }
+
+    /*
+     * Each shard gets the shard timeout from when its query starts, so a shard queued behind others on a
+     * busy pool is not charged for the wait. A shard still queued after one timeout also counts as timed out.
+     */
+    private <T> T await(Future<T> future, AtomicLongArray started, int shard, long submitted)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(config.getShardTimeoutMs());
+        while (true) {
+            long start = started.get(shard);
+            long deadline = (start != 0 ? start : submitted) + timeout;
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (start != 0 || started.get(shard) == 0) {
+                    throw e;
+                }
+                // Started while we waited on the queueing deadline: wait again on its own deadline
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardQuery<T> {
+        List<T> run(String shardKey, DetachedCriteria criteria) throws Exception;
+    }
+}
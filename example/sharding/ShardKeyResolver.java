@@ -0,0 +1,46 @@
+package com.example.sharding;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the parent key a row is routed to by {@link io.appform.dropwizard.sharding.dao.RelationalDao}.
+ *
+ * New rows are placed on a shard by hashing a stable attribute (beneficiary, email, parent campaign).
+ * Ids are generated by the shard the row was inserted into and encode that shard, so an existing
+ * row can be routed from its id alone.
+ */
+public interface ShardKeyResolver {
+
+    /**
+     * Key of the shard that owns the row (or the children of the row) with the given id
+     */
+    String forId(Long id);
+
+    /**
+     * Key of the shard a new row should be placed on, derived from a stable attribute of the row
+     */
+    String forValue(Object value);
+
+    /**
+     * One key per shard, in shard order, for queries that cannot be routed
+     */
+    List<String> allShards();
+
+    /**
+     * Index of the shard a key routes to, for labelling per-shard metrics
+     */
+    int shardIndex(String shardKey);
+
+    /**
+     * Group ids by the key of the shard that owns them, so each shard can be queried once
+     */
+    default Map<String, List<Long>> groupById(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(this::forId, LinkedHashMap::new, Collectors.toList()));
+    }
+}
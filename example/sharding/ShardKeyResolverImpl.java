@@ -0,0 +1,91 @@
+package com.example.sharding;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.appform.dropwizard.sharding.sharding.ShardCalculator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default {@link ShardKeyResolver}.
+ *
+ * Every shard must hand out auto-increment ids with {@code auto_increment_increment = <number of shards>}
+ * and {@code auto_increment_offset = <shard index + 1>}, so that {@code (id - 1) % numShards} is the
+ * shard the row lives on. With a single shard this is the MySQL default.
+ *
+ * The sharding bundle routes by hashing the parent key into buckets, so for every shard we probe for
+ * a key the {@link ShardCalculator} maps onto it and use that key for all rows of the shard.
+ */
+@Slf4j
+public class ShardKeyResolverImpl implements ShardKeyResolver {
+
+    private static final int MAX_PROBES = 1_000_000;
+
+    private final List<String> shardKeys;
+    private final List<Meter> requestMeters;
+
+    public ShardKeyResolverImpl(ShardCalculator<String> shardCalculator, int numShards, MetricRegistry metricRegistry) {
+        if (numShards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        String[] keys = new String[numShards];
+        int found = 0;
+        for (int probe = 0; probe < MAX_PROBES && found < numShards; probe++) {
+            String key = "shard-" + probe;
+            int shardId = shardCalculator.shardId(key);
+            if (shardId >= 0 && shardId < numShards && keys[shardId] == null) {
+                keys[shardId] = key;
+                found++;
+            }
+        }
+        if (found < numShards) {
+            throw new IllegalStateException("Could not find a routing key for every shard, found " + found + " of " + numShards);
+        }
+        this.shardKeys = Collections.unmodifiableList(List.of(keys));
+
+        List<Meter> meters = new ArrayList<>(numShards);
+        for (int shardId = 0; shardId < numShards; shardId++) {
+            meters.add(metricRegistry.meter(MetricRegistry.name("shards", String.valueOf(shardId), "requests")));
+        }
+        this.requestMeters = Collections.unmodifiableList(meters);
+        log.info("Resolved shard keys: {}", shardKeys);
+    }
+
+    @Override
+    public String forId(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Id is required to resolve a shard");
+        }
+        return route(Math.floorMod(id - 1, shardKeys.size()));
+    }
+
+    @Override
+    public String forValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value is required to resolve a shard");
+        }
+        return route(Math.floorMod(String.valueOf(value).hashCode(), shardKeys.size()));
+    }
+
+    /**
+     * Counts one request against every shard, since the caller is about to fan out to all of them
+     */
+    @Override
+    public List<String> allShards() {
+        requestMeters.forEach(Meter::mark);
+        return shardKeys;
+    }
+
+    @Override
+    public int shardIndex(String shardKey) {
+        return shardKeys.indexOf(shardKey);
+    }
+
+    private String route(int shardId) {
+        requestMeters.get(shardId).mark();
+        return shardKeys.get(shardId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sharding;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Rows gathered from several shards, with the shards that failed or timed out
+ */
+@Value
+public class ShardResults<T> {
+
+    List<T> items;
+
+    List<String> failedShards;
+
+    public boolean isPartial() {
+        return !failedShards.isEmpty();
+    }
+
+    /**
+     * The rows, failing when a shard did not answer. Keyset pages must not be partial, since a cursor
+     * handed out after a partial page would skip the missing shard's rows for good.
+     */
+    public List<T> requireComplete() {
+        if (isPartial()) {
+            throw new RuntimeException("Shards " + failedShards + " did not answer");
+        }
+        return items;
+    }
+}
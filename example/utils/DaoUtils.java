@@ -4,6 +4,13 @@ import io.appform.dropwizard.sharding.DBShardingBundle;
 import io.appform.dropwizard.sharding.dao.RelationalDao;
 import io.appform.ranger.discovery.bundle.id.IdGenerator;
 import lombok.experimental.UtilityClass;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+
+import java.util.List;
 
 @UtilityClass
 public class DaoUtils {
@@ -13,4 +20,25 @@ public class DaoUtils {
         IdGenerator.registerDomainSpecificConstraints(tClass.getName(), id -> dao.getShardCalculator().isOnValidShard(id.getId()));
         return dao;
     }
+
+    /**
+     * Restrict the criteria to rows after afterId (if any), lowest ids first
+     */
+    public DetachedCriteria seek(DetachedCriteria criteria, String idProperty, Long afterId) {
+        if (afterId != null) {
+            criteria.add(Restrictions.gt(idProperty, afterId));
+        }
+        return criteria.addOrder(Order.asc(idProperty));
+    }
+
+    /**
+     * Project the criteria onto the given properties, each aliased to its own name
+     */
+    public DetachedCriteria project(DetachedCriteria criteria, List<String> properties) {
+        ProjectionList columns = Projections.projectionList();
+        for (String property : properties) {
+            columns.add(Projections.property(property), property);
+        }
+        return criteria.setProjection(columns);
+    }
 }